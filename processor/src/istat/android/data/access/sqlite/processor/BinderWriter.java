@@ -0,0 +1,275 @@
+package istat.android.data.access.sqlite.processor;
+
+import java.util.List;
+
+import static istat.android.data.access.sqlite.processor.SQLiteBinderProcessor.ColumnField;
+import static istat.android.data.access.sqlite.processor.SQLiteBinderProcessor.KIND_BLOB;
+import static istat.android.data.access.sqlite.processor.SQLiteBinderProcessor.KIND_BOOLEAN;
+import static istat.android.data.access.sqlite.processor.SQLiteBinderProcessor.KIND_CHAR_SEQUENCE;
+import static istat.android.data.access.sqlite.processor.SQLiteBinderProcessor.KIND_DOUBLE;
+import static istat.android.data.access.sqlite.processor.SQLiteBinderProcessor.KIND_FLOAT;
+import static istat.android.data.access.sqlite.processor.SQLiteBinderProcessor.KIND_INT;
+import static istat.android.data.access.sqlite.processor.SQLiteBinderProcessor.KIND_JSON;
+import static istat.android.data.access.sqlite.processor.SQLiteBinderProcessor.KIND_LONG;
+import static istat.android.data.access.sqlite.processor.SQLiteBinderProcessor.KIND_SHORT;
+import static istat.android.data.access.sqlite.processor.SQLiteBinderProcessor.KIND_STRING;
+
+/**
+ * Write the source of one SQLiteBinder.
+ */
+final class BinderWriter {
+    final String packageName, binderName, entityName;
+    final List<ColumnField> columns;
+    final StringBuilder out = new StringBuilder();
+
+    BinderWriter(String packageName, String binderName, String entityName, List<ColumnField> columns) {
+        this.packageName = packageName;
+        this.binderName = binderName;
+        this.entityName = entityName;
+        this.columns = columns;
+    }
+
+    String write() {
+        if (!packageName.isEmpty()) {
+            line("package " + packageName + ";");
+            line("");
+        }
+        line("/**");
+        line(" * Generated by SQLiteBinderProcessor, do not modify.");
+        line(" */");
+        line("@SuppressWarnings(\"unchecked\")");
+        line("public final class " + binderName + " extends istat.android.data.access.sqlite.SQLiteBinder<" + entityName + "> {");
+        writeConstants();
+        writeGetColumns();
+        writeNewInstance();
+        writeFillFromCursor();
+        writeToContentValues();
+        writeGetColumnSet();
+        writeBindTo();
+        writeGetPrimaryKey();
+        line("}");
+        return out.toString();
+    }
+
+    private void writeConstants() {
+        StringBuilder names = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                names.append(", ");
+            }
+            names.append(quote(columns.get(i).name));
+        }
+        line("    private final static String[] COLUMNS = {" + names + "};");
+        for (ColumnField column : columns) {
+            if (column.kind == KIND_JSON) {
+                line("    private final static java.lang.reflect.Type " + typeConstant(column)
+                        + " = new com.google.gson.reflect.TypeToken<" + boxedTypeName(column) + ">() {\n        }.getType();");
+            }
+        }
+        line("");
+    }
+
+    private void writeGetColumns() {
+        line("    @Override");
+        line("    public String[] getColumns() {");
+        line("        return COLUMNS.clone();");
+        line("    }");
+        line("");
+    }
+
+    private void writeNewInstance() {
+        line("    @Override");
+        line("    public " + entityName + " newInstance() {");
+        line("        return new " + entityName + "();");
+        line("    }");
+        line("");
+    }
+
+    private void writeFillFromCursor() {
+        line("    @Override");
+        line("    public void fillFromCursor(" + entityName + " entity, android.database.Cursor c, int[] columnIndexes) {");
+        line("        int index;");
+        for (int i = 0; i < columns.size(); i++) {
+            ColumnField column = columns.get(i);
+            String target = "entity." + column.fieldName();
+            line("        index = columnIndexes[" + i + "];");
+            line("        if (index >= 0 && !c.isNull(index)) {");
+            switch (column.kind) {
+                case KIND_STRING:
+                case KIND_CHAR_SEQUENCE:
+                    line("            " + target + " = c.getString(index);");
+                    break;
+                case KIND_INT:
+                    line("            " + target + " = c.getInt(index);");
+                    break;
+                case KIND_LONG:
+                    line("            " + target + " = c.getLong(index);");
+                    break;
+                case KIND_SHORT:
+                    line("            " + target + " = c.getShort(index);");
+                    break;
+                case KIND_DOUBLE:
+                    line("            " + target + " = c.getDouble(index);");
+                    break;
+                case KIND_FLOAT:
+                    line("            " + target + " = c.getFloat(index);");
+                    break;
+                case KIND_BOOLEAN:
+                    line("            " + target + " = readBoolean(c, index);");
+                    break;
+                case KIND_BLOB:
+                    line("            " + target + " = c.getBlob(index);");
+                    break;
+                default:
+                    line("            Object value = readObject(c, index, " + typeConstant(column) + ");");
+                    line("            if (value != null) {");
+                    line("                " + target + " = (" + boxedTypeName(column) + ") value;");
+                    line("            }");
+                    break;
+            }
+            line("        }");
+        }
+        line("    }");
+        line("");
+    }
+
+    private void writeToContentValues() {
+        line("    @Override");
+        line("    public android.content.ContentValues toContentValues(" + entityName + " entity) {");
+        line("        android.content.ContentValues values = new android.content.ContentValues();");
+        for (ColumnField column : columns) {
+            String source = "entity." + column.fieldName();
+            String indent = "        ";
+            if (!column.isPrimitive()) {
+                line("        if (" + source + " != null) {");
+                indent = "            ";
+            }
+            line(indent + "values.put(" + quote(column.name) + ", " + valueExpression(column, source) + ");");
+            if (!column.isPrimitive()) {
+                line("        }");
+            }
+        }
+        line("        return values;");
+        line("    }");
+        line("");
+    }
+
+    private void writeGetColumnSet() {
+        long primitives = 0;
+        for (int i = 0; i < columns.size() && i < 64; i++) {
+            if (columns.get(i).isPrimitive()) {
+                primitives |= 1L << i;
+            }
+        }
+        line("    @Override");
+        line("    public long getColumnSet(" + entityName + " entity) {");
+        line("        long columnSet = 0x" + Long.toHexString(primitives) + "L;");
+        for (int i = 0; i < columns.size() && i < 64; i++) {
+            ColumnField column = columns.get(i);
+            if (!column.isPrimitive()) {
+                line("        if (entity." + column.fieldName() + " != null) {");
+                line("            columnSet |= 1L << " + i + ";");
+                line("        }");
+            }
+        }
+        line("        return columnSet;");
+        line("    }");
+        line("");
+    }
+
+    private void writeBindTo() {
+        line("    @Override");
+        line("    public int bindTo(" + entityName + " entity, android.database.sqlite.SQLiteStatement statement, int index) {");
+        for (ColumnField column : columns) {
+            String source = "entity." + column.fieldName();
+            String indent = "        ";
+            if (!column.isPrimitive()) {
+                line("        if (" + source + " != null) {");
+                indent = "            ";
+            }
+            line(indent + "statement." + bindMethod(column) + "(index++, " + valueExpression(column, source) + ");");
+            if (!column.isPrimitive()) {
+                line("        }");
+            }
+        }
+        line("        return index;");
+        line("    }");
+        line("");
+    }
+
+    private void writeGetPrimaryKey() {
+        line("    @Override");
+        line("    public String getPrimaryKey(" + entityName + " entity) {");
+        ColumnField primary = null;
+        for (ColumnField column : columns) {
+            if (column.primary) {
+                primary = column;
+            }
+        }
+        if (primary == null) {
+            line("        return \"\";");
+        } else if (primary.isPrimitive()) {
+            line("        return String.valueOf(entity." + primary.fieldName() + ");");
+        } else {
+            line("        return entity." + primary.fieldName() + " == null ? \"\" : String.valueOf(entity." + primary.fieldName() + ");");
+        }
+        line("    }");
+    }
+
+    /**
+     * booleans are stored as "true"/"false" text, as the reflection path does.
+     */
+    private String valueExpression(ColumnField column, String source) {
+        switch (column.kind) {
+            case KIND_BOOLEAN:
+            case KIND_CHAR_SEQUENCE:
+                return "String.valueOf(" + source + ")";
+            case KIND_JSON:
+                return "writeObject(" + source + ", " + typeConstant(column) + ")";
+            default:
+                return source;
+        }
+    }
+
+    private static String bindMethod(ColumnField column) {
+        switch (column.kind) {
+            case KIND_INT:
+            case KIND_LONG:
+            case KIND_SHORT:
+                return "bindLong";
+            case KIND_DOUBLE:
+            case KIND_FLOAT:
+                return "bindDouble";
+            case KIND_BLOB:
+                return "bindBlob";
+            default:
+                return "bindString";
+        }
+    }
+
+    /**
+     * named after the column position, field names only differing by case would collide.
+     */
+    private String typeConstant(ColumnField column) {
+        return "TYPE_" + columns.indexOf(column);
+    }
+
+    private String boxedTypeName(ColumnField column) {
+        switch (column.field.asType().getKind()) {
+            case CHAR:
+                return "Character";
+            case BYTE:
+                return "Byte";
+            default:
+                return column.typeName();
+        }
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private void line(String line) {
+        out.append(line).append('\n');
+    }
+}
@@ -0,0 +1,344 @@
+package istat.android.data.access.sqlite.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generate a &lt;ClassName&gt;_SQLiteBinder for each class mapped with SQLiteModel annotations.
+ * The generated binder follows the same column rules as the runtime TableMapping, it is
+ * picked up by the library when present and reflection is used otherwise.
+ * Classes whose mapped fields can't be reached from their own package (private or final fields,
+ * no visible default constructor...) are skipped.
+ */
+@SupportedAnnotationTypes({SQLiteBinderProcessor.TABLE, SQLiteBinderProcessor.COLUMN, SQLiteBinderProcessor.PRIMARY_KEY})
+public class SQLiteBinderProcessor extends AbstractProcessor {
+    final static String MODEL = "istat.android.data.access.sqlite.SQLiteModel";
+    final static String TABLE = MODEL + ".Table", COLUMN = MODEL + ".Column",
+            PRIMARY_KEY = MODEL + ".PrimaryKey", IGNORE = MODEL + ".Ignore";
+    final static String SUFFIX = "_SQLiteBinder";
+
+    final static int KIND_STRING = 0, KIND_CHAR_SEQUENCE = 1, KIND_INT = 2, KIND_LONG = 3, KIND_SHORT = 4,
+            KIND_DOUBLE = 5, KIND_FLOAT = 6, KIND_BOOLEAN = 7, KIND_BLOB = 8, KIND_JSON = 9;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> classes = new LinkedHashSet<TypeElement>();
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS) {
+                    classes.add((TypeElement) element);
+                } else if (element.getKind() == ElementKind.FIELD
+                        && element.getEnclosingElement().getKind() == ElementKind.CLASS) {
+                    classes.add((TypeElement) element.getEnclosingElement());
+                }
+            }
+        }
+        for (TypeElement type : classes) {
+            try {
+                generate(type);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "can't write SQLite binder: " + e.getMessage(), type);
+            }
+        }
+        return false;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        String packageName = getPackage(type).getQualifiedName().toString();
+        List<ColumnField> columns = collectColumns(type);
+        String reason = checkEligibility(type, packageName, columns);
+        if (reason != null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    type.getQualifiedName() + " will use reflection: " + reason, type);
+            return;
+        }
+        String binderName = getFlatName(type) + SUFFIX;
+        String entityName = type.getQualifiedName().toString();
+        String qualifiedBinderName = packageName.isEmpty() ? binderName : packageName + "." + binderName;
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedBinderName, type);
+        Writer writer = file.openWriter();
+        try {
+            writer.write(new BinderWriter(packageName, binderName, entityName, columns).write());
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * same rules as TableMapping: own fields first then super class fields, @Column
+     * annotations switch the class to explicit columns, the primary key is added last when missing.
+     */
+    private List<ColumnField> collectColumns(TypeElement type) {
+        List<ColumnField> columns = new ArrayList<ColumnField>();
+        boolean hasColumnAnnotation = false;
+        ColumnField primary = null, eligiblePrimary = null;
+        for (VariableElement field : getAllFields(type)) {
+            if (findAnnotation(field, IGNORE) != null) {
+                continue;
+            }
+            String columnName = null;
+            AnnotationMirror column = findAnnotation(field, COLUMN);
+            if (column != null) {
+                columnName = getAnnotationValue(column, "name");
+                if (columnName == null || columnName.isEmpty()) {
+                    columnName = field.getSimpleName().toString();
+                }
+                if (!hasColumnAnnotation) {
+                    columns.clear();
+                }
+                hasColumnAnnotation = true;
+            }
+            String keyName = columnName != null ? columnName : field.getSimpleName().toString();
+            if (findAnnotation(field, PRIMARY_KEY) != null && primary == null) {
+                primary = new ColumnField(keyName, field);
+            } else if (field.getSimpleName().toString().equalsIgnoreCase("id")) {
+                eligiblePrimary = new ColumnField(keyName, field);
+            }
+            if (columnName == null && !hasColumnAnnotation) {
+                columnName = field.getSimpleName().toString();
+            }
+            if (columnName != null && indexOf(columns, columnName) < 0) {
+                columns.add(new ColumnField(columnName, field));
+            }
+        }
+        if (primary == null) {
+            primary = eligiblePrimary;
+        }
+        if (primary != null) {
+            int index = indexOf(columns, primary.name);
+            if (index < 0) {
+                columns.add(primary);
+            } else {
+                primary = columns.get(index);
+            }
+            primary.primary = true;
+        }
+        return columns;
+    }
+
+    private String checkEligibility(TypeElement type, String packageName, List<ColumnField> columns) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return "class is abstract";
+        }
+        for (Element element = type; element.getKind() != ElementKind.PACKAGE; element = element.getEnclosingElement()) {
+            if (element.getModifiers().contains(Modifier.PRIVATE)) {
+                return element + " is private";
+            }
+            if (element.getEnclosingElement().getKind() != ElementKind.PACKAGE
+                    && !element.getModifiers().contains(Modifier.STATIC)) {
+                return element + " is an inner class, it has to be static";
+            }
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            return "class is generic";
+        }
+        if (!hasVisibleDefaultConstructor(type)) {
+            return "no visible default constructor";
+        }
+        Set<String> fieldNames = new HashSet<String>();
+        for (ColumnField column : columns) {
+            VariableElement field = column.field;
+            if (!fieldNames.add(column.fieldName())) {
+                return "field " + field.getSimpleName() + " is shadowed";
+            }
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL)) {
+                return "field " + field.getSimpleName() + " is private or final";
+            }
+            if (!modifiers.contains(Modifier.PUBLIC)
+                    && !getPackage(field).getQualifiedName().contentEquals(packageName)) {
+                return "field " + field.getSimpleName() + " is not visible from " + packageName;
+            }
+            if (hasTypeVariable(field.asType())) {
+                return "field " + field.getSimpleName() + " has a type variable";
+            }
+            column.kind = getKind(field.asType());
+        }
+        return null;
+    }
+
+    private boolean hasVisibleDefaultConstructor(TypeElement type) {
+        for (Element element : type.getEnclosedElements()) {
+            if (element.getKind() == ElementKind.CONSTRUCTOR
+                    && ((ExecutableElement) element).getParameters().isEmpty()
+                    && !element.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasTypeVariable(TypeMirror type) {
+        if (type.getKind() == TypeKind.TYPEVAR || type.getKind() == TypeKind.WILDCARD) {
+            return true;
+        }
+        if (type.getKind() == TypeKind.ARRAY) {
+            return hasTypeVariable(((ArrayType) type).getComponentType());
+        }
+        if (type.getKind() == TypeKind.DECLARED) {
+            for (TypeMirror argument : ((DeclaredType) type).getTypeArguments()) {
+                if (hasTypeVariable(argument)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int getKind(TypeMirror type) {
+        switch (type.getKind()) {
+            case INT:
+                return KIND_INT;
+            case LONG:
+                return KIND_LONG;
+            case SHORT:
+                return KIND_SHORT;
+            case DOUBLE:
+                return KIND_DOUBLE;
+            case FLOAT:
+                return KIND_FLOAT;
+            case BOOLEAN:
+                return KIND_BOOLEAN;
+            case ARRAY:
+                return ((ArrayType) type).getComponentType().getKind() == TypeKind.BYTE ? KIND_BLOB : KIND_JSON;
+            case DECLARED:
+                String name = ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+                if (name.equals("java.lang.String")) {
+                    return KIND_STRING;
+                } else if (name.equals("java.lang.CharSequence")) {
+                    return KIND_CHAR_SEQUENCE;
+                } else if (name.equals("java.lang.Integer")) {
+                    return KIND_INT;
+                } else if (name.equals("java.lang.Long")) {
+                    return KIND_LONG;
+                } else if (name.equals("java.lang.Short")) {
+                    return KIND_SHORT;
+                } else if (name.equals("java.lang.Double")) {
+                    return KIND_DOUBLE;
+                } else if (name.equals("java.lang.Float")) {
+                    return KIND_FLOAT;
+                } else if (name.equals("java.lang.Boolean")) {
+                    return KIND_BOOLEAN;
+                }
+                return KIND_JSON;
+            default:
+                return KIND_JSON;
+        }
+    }
+
+    private List<VariableElement> getAllFields(TypeElement type) {
+        List<VariableElement> fields = new ArrayList<VariableElement>();
+        TypeElement current = type;
+        while (current != null && !current.getQualifiedName().contentEquals("java.lang.Object")) {
+            for (Element element : current.getEnclosedElements()) {
+                if (element.getKind() == ElementKind.FIELD && !element.getModifiers().contains(Modifier.STATIC)) {
+                    fields.add((VariableElement) element);
+                }
+            }
+            TypeMirror superType = current.getSuperclass();
+            current = superType.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superType).asElement() : null;
+        }
+        return fields;
+    }
+
+    private static int indexOf(List<ColumnField> columns, String name) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).name.equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static AnnotationMirror findAnnotation(Element element, String name) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement annotation = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotation.getQualifiedName().contentEquals(name)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private static String getAnnotationValue(AnnotationMirror mirror, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return String.valueOf(entry.getValue().getValue());
+            }
+        }
+        return null;
+    }
+
+    private static PackageElement getPackage(Element element) {
+        while (element.getKind() != ElementKind.PACKAGE) {
+            element = element.getEnclosingElement();
+        }
+        return (PackageElement) element;
+    }
+
+    private static String getFlatName(TypeElement type) {
+        String name = type.getSimpleName().toString();
+        Element enclosing = type.getEnclosingElement();
+        while (enclosing.getKind() != ElementKind.PACKAGE) {
+            name = enclosing.getSimpleName() + "_" + name;
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name;
+    }
+
+    static final class ColumnField {
+        final String name;
+        final VariableElement field;
+        int kind = KIND_JSON;
+        boolean primary = false;
+
+        ColumnField(String name, VariableElement field) {
+            this.name = name;
+            this.field = field;
+        }
+
+        String fieldName() {
+            return field.getSimpleName().toString();
+        }
+
+        String typeName() {
+            return field.asType().toString();
+        }
+
+        boolean isPrimitive() {
+            return field.asType().getKind().isPrimitive();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package istat.android.data.access.sqlite;
+
+import java.util.Iterator;
+import java.util.List;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Write a list of rows in transactions of {@link #chunkSize} rows, so that a batch
+ * costs one journal commit per chunk instead of one per row.
+ * With a chunk size &lt;= 0 rows are written one by one, inside the caller's transaction if any.
+ * Inside the caller's transaction, each chunk is a savepoint: a failing chunk only rolls back its own rows.
+ */
+final class BulkExecutor {
+    final SQLiteDatabase db;
+    int chunkSize;
+    SQLite.ProgressListener progressListener;
+    /**
+     * result of every row, filled as rows are written.
+     */
+    long[] results = new long[0];
+    /**
+     * count of rows written and committed so far.
+     */
+    int committed = 0;
+
+    interface RowWriter<T> {
+        long write(T row) throws IllegalAccessException;
+    }
+
+    interface ChunkWriter {
+        /**
+         * add an element of the source to the chunk being built.
+         */
+        void add(Object element);
+
+        /**
+         * write the chunk being built.
+         *
+         * @return result of every row of the chunk.
+         */
+        long[] write() throws IllegalAccessException;
+    }
+
+    BulkExecutor(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    <T> long[] execute(List<T> rows, RowWriter<T> writer) throws IllegalAccessException {
+        int total = rows.size();
+        results = new long[total];
+        committed = 0;
+        int chunk = chunkSize > 0 ? chunkSize : total;
+        for (int start = 0; start < total; start += chunk) {
+            int end = Math.min(total, start + chunk);
+            NestedTransaction transaction = chunkSize > 0 ? NestedTransaction.begin(db) : null;
+            try {
+                for (int i = start; i < end; i++) {
+                    results[i] = writer.write(rows.get(i));
+                    if (transaction == null) {
+                        committed = i + 1;
+                    }
+                }
+                if (transaction != null) {
+                    transaction.setSuccessful();
+                }
+            } finally {
+                if (transaction != null) {
+                    transaction.end();
+                }
+            }
+            committed = end;
+            if (progressListener != null) {
+                progressListener.onProgress(end, total);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * write the source one chunk at a time ({@link #chunkSize} rows, {@value SQLiteInsert#DEFAULT_STREAM_CHUNK_SIZE} by default),
+     * each chunk in its own transaction, so that only one chunk of rows is alive at once.
+     * The progress listener receives -1 as total.
+     *
+     * @param rows rows of the chunk being built, filled by the writer; rows already there are written first.
+     */
+    long[] executeStream(List<?> rows, Iterator<?> source, ChunkWriter writer) throws IllegalAccessException {
+        int streamChunkSize = chunkSize > 0 ? chunkSize : SQLiteInsert.DEFAULT_STREAM_CHUNK_SIZE;
+        SQLite.ProgressListener listener = progressListener;
+        int initialChunkSize = chunkSize;
+        chunkSize = streamChunkSize;
+        progressListener = null;
+        long[] out = new long[streamChunkSize];
+        int count = 0;
+        try {
+            while (true) {
+                while (source.hasNext() && rows.size() < streamChunkSize) {
+                    writer.add(source.next());
+                }
+                if (rows.isEmpty()) {
+                    break;
+                }
+                long[] ids = writer.write();
+                rows.clear();
+                if (count + ids.length > out.length) {
+                    long[] tmp = new long[Math.max(out.length * 2, count + ids.length)];
+                    System.arraycopy(out, 0, tmp, 0, count);
+                    out = tmp;
+                }
+                System.arraycopy(ids, 0, out, count, ids.length);
+                count += ids.length;
+                if (listener != null) {
+                    listener.onProgress(count, -1);
+                }
+            }
+        } finally {
+            rows.clear();
+            chunkSize = initialChunkSize;
+            progressListener = listener;
+        }
+        long[] ids = new long[count];
+        System.arraycopy(out, 0, ids, 0, count);
+        return ids;
+    }
+}
@@ -0,0 +1,27 @@
+package istat.android.data.access.sqlite;
+
+import java.util.HashMap;
+
+import android.database.Cursor;
+
+/**
+ * Cursor column indexes of each mapped table, resolved on the first row
+ * and reused for every following row of the same result set.
+ */
+final class CursorPlan {
+    final Cursor cursor;
+    final HashMap<TableMapping, int[]> mappingIndexesPair = new HashMap<TableMapping, int[]>();
+
+    CursorPlan(Cursor cursor) {
+        this.cursor = cursor;
+    }
+
+    int[] getColumnIndexes(TableMapping mapping) {
+        int[] indexes = mappingIndexesPair.get(mapping);
+        if (indexes == null) {
+            indexes = mapping.resolveColumnIndexes(cursor);
+            mappingIndexesPair.put(mapping, indexes);
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,77 @@
+package istat.android.data.access.sqlite;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * stored values of the entities selected with change tracking, as they were read from the database.
+ * Entities are held by identity and weakly, a snapshot goes away with its entity.
+ */
+final class EntitySnapshots {
+    final static HashMap<Key, Object[]> entitySnapshotPair = new HashMap<Key, Object[]>();
+    final static ReferenceQueue<Object> releasedEntities = new ReferenceQueue<Object>();
+
+    private EntitySnapshots() {
+
+    }
+
+    static void take(TableMapping mapping, Object entity) throws IllegalAccessException {
+        Object[] values = new Object[mapping.columns.length];
+        StatementCache.readValues(mapping, entity, values);
+        put(entity, values);
+    }
+
+    static synchronized void put(Object entity, Object[] values) {
+        expunge();
+        entitySnapshotPair.put(new Key(entity, releasedEntities), values);
+    }
+
+    static synchronized Object[] get(Object entity) {
+        expunge();
+        return entitySnapshotPair.get(new Key(entity, null));
+    }
+
+    static synchronized void remove(Object entity) {
+        entitySnapshotPair.remove(new Key(entity, null));
+    }
+
+    static boolean isChanged(Object value, Object snapshot) {
+        if (value instanceof byte[] && snapshot instanceof byte[]) {
+            return !Arrays.equals((byte[]) value, (byte[]) snapshot);
+        }
+        return value == null ? snapshot != null : !value.equals(snapshot);
+    }
+
+    private static void expunge() {
+        Reference<?> released;
+        while ((released = releasedEntities.poll()) != null) {
+            entitySnapshotPair.remove(released);
+        }
+    }
+
+    final static class Key extends WeakReference<Object> {
+        final int hash;
+
+        Key(Object entity, ReferenceQueue<Object> queue) {
+            super(entity, queue);
+            hash = System.identityHashCode(entity);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            Object entity = get();
+            return entity != null && o instanceof Key && entity == ((Key) o).get();
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package istat.android.data.access.sqlite;
+
+import java.lang.reflect.Field;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * Pre-resolved access to one mapped field, with primitive specialised getters and setters
+ * so that reading or writing a numeric property neither looks the field up nor boxes it.
+ * Values of another type are converted the same way the model getters do.
+ */
+final class FieldAccessor {
+    final static int TYPE_OBJECT = 0, TYPE_STRING = 1, TYPE_INT = 2, TYPE_LONG = 3, TYPE_SHORT = 4,
+            TYPE_DOUBLE = 5, TYPE_FLOAT = 6, TYPE_BOOLEAN = 7, TYPE_BLOB = 8;
+    final Field field;
+    final String name;
+    final int type;
+    final boolean primitive;
+
+    FieldAccessor(Field field) {
+        field.setAccessible(true);
+        this.field = field;
+        this.name = field.getName();
+        this.type = typeOf(field.getType());
+        this.primitive = field.getType().isPrimitive();
+    }
+
+    static int typeOf(Class<?> cLass) {
+        if (cLass == String.class || cLass == CharSequence.class) {
+            return TYPE_STRING;
+        } else if (cLass == int.class || cLass == Integer.class) {
+            return TYPE_INT;
+        } else if (cLass == long.class || cLass == Long.class) {
+            return TYPE_LONG;
+        } else if (cLass == short.class || cLass == Short.class) {
+            return TYPE_SHORT;
+        } else if (cLass == double.class || cLass == Double.class) {
+            return TYPE_DOUBLE;
+        } else if (cLass == float.class || cLass == Float.class) {
+            return TYPE_FLOAT;
+        } else if (cLass == boolean.class || cLass == Boolean.class) {
+            return TYPE_BOOLEAN;
+        } else if (cLass == byte[].class) {
+            return TYPE_BLOB;
+        }
+        return TYPE_OBJECT;
+    }
+
+    boolean isNumeric() {
+        return type >= TYPE_INT && type <= TYPE_FLOAT;
+    }
+
+    Object get(Object target) throws IllegalAccessException {
+        return field.get(target);
+    }
+
+    long getLong(Object target) throws IllegalAccessException {
+        if (primitive && type >= TYPE_INT && type <= TYPE_SHORT) {
+            return field.getLong(target);
+        }
+        return toLong(field.get(target));
+    }
+
+    int getInt(Object target) throws IllegalAccessException {
+        return (int) getLong(target);
+    }
+
+    double getDouble(Object target) throws IllegalAccessException {
+        if (primitive && isNumeric()) {
+            return field.getDouble(target);
+        }
+        return toDouble(field.get(target));
+    }
+
+    float getFloat(Object target) throws IllegalAccessException {
+        return (float) getDouble(target);
+    }
+
+    boolean getBoolean(Object target) throws IllegalAccessException {
+        if (primitive && type == TYPE_BOOLEAN) {
+            return field.getBoolean(target);
+        }
+        return toBoolean(field.get(target));
+    }
+
+    void set(Object target, Object value) throws IllegalAccessException {
+        if (value == null) {
+            if (!primitive) {
+                field.set(target, null);
+            }
+            return;
+        }
+        switch (type) {
+            case TYPE_STRING:
+                field.set(target, value.toString());
+                break;
+            case TYPE_INT:
+            case TYPE_LONG:
+            case TYPE_SHORT:
+                setLong(target, toLong(value));
+                break;
+            case TYPE_DOUBLE:
+            case TYPE_FLOAT:
+                setDouble(target, toDouble(value));
+                break;
+            case TYPE_BOOLEAN:
+                setBoolean(target, toBoolean(value));
+                break;
+            default:
+                field.set(target, value);
+                break;
+        }
+    }
+
+    void setLong(Object target, long value) throws IllegalAccessException {
+        switch (type) {
+            case TYPE_INT:
+                if (primitive) {
+                    field.setInt(target, (int) value);
+                } else {
+                    field.set(target, (int) value);
+                }
+                break;
+            case TYPE_LONG:
+                if (primitive) {
+                    field.setLong(target, value);
+                } else {
+                    field.set(target, value);
+                }
+                break;
+            case TYPE_SHORT:
+                if (primitive) {
+                    field.setShort(target, (short) value);
+                } else {
+                    field.set(target, (short) value);
+                }
+                break;
+            case TYPE_DOUBLE:
+            case TYPE_FLOAT:
+                setDouble(target, value);
+                break;
+            case TYPE_BOOLEAN:
+                setBoolean(target, value != 0);
+                break;
+            default:
+                set(target, value);
+                break;
+        }
+    }
+
+    void setInt(Object target, int value) throws IllegalAccessException {
+        setLong(target, value);
+    }
+
+    void setDouble(Object target, double value) throws IllegalAccessException {
+        switch (type) {
+            case TYPE_DOUBLE:
+                if (primitive) {
+                    field.setDouble(target, value);
+                } else {
+                    field.set(target, value);
+                }
+                break;
+            case TYPE_FLOAT:
+                if (primitive) {
+                    field.setFloat(target, (float) value);
+                } else {
+                    field.set(target, (float) value);
+                }
+                break;
+            case TYPE_INT:
+            case TYPE_LONG:
+            case TYPE_SHORT:
+                setLong(target, (long) value);
+                break;
+            default:
+                set(target, value);
+                break;
+        }
+    }
+
+    void setFloat(Object target, float value) throws IllegalAccessException {
+        setDouble(target, value);
+    }
+
+    void setBoolean(Object target, boolean value) throws IllegalAccessException {
+        if (type != TYPE_BOOLEAN) {
+            set(target, value);
+        } else if (primitive) {
+            field.setBoolean(target, value);
+        } else {
+            field.set(target, value);
+        }
+    }
+
+    /**
+     * read the column with the cursor getter matching the field type.
+     *
+     * @return the value, or null when the column is SQL NULL.
+     */
+    Object read(Cursor c, int index) {
+        if (c.isNull(index)) {
+            return null;
+        }
+        switch (type) {
+            case TYPE_INT:
+                return c.getInt(index);
+            case TYPE_LONG:
+                return c.getLong(index);
+            case TYPE_SHORT:
+                return c.getShort(index);
+            case TYPE_DOUBLE:
+                return c.getDouble(index);
+            case TYPE_FLOAT:
+                return c.getFloat(index);
+            case TYPE_BLOB:
+                return c.getBlob(index);
+            default:
+                return c.getString(index);
+        }
+    }
+
+    /**
+     * write the column straight into the field of the target, without boxing primitives.
+     * SQL NULL leaves the field untouched.
+     */
+    void readInto(Object target, Cursor c, int index) throws IllegalAccessException {
+        if (c.isNull(index)) {
+            return;
+        }
+        switch (type) {
+            case TYPE_INT:
+            case TYPE_SHORT:
+                setInt(target, c.getInt(index));
+                break;
+            case TYPE_LONG:
+                setLong(target, c.getLong(index));
+                break;
+            case TYPE_DOUBLE:
+            case TYPE_FLOAT:
+                setDouble(target, c.getDouble(index));
+                break;
+            case TYPE_BOOLEAN:
+                setBoolean(target, toBoolean(c.getString(index)));
+                break;
+            case TYPE_BLOB:
+                field.set(target, c.getBlob(index));
+                break;
+            case TYPE_STRING:
+                field.set(target, c.getString(index));
+                break;
+            default:
+                Object value = JsonAdapters.fromStoredString(c.getString(index), field.getGenericType());
+                if (value != null) {
+                    field.set(target, value);
+                }
+                break;
+        }
+    }
+
+    /**
+     * put the field value of the target with the ContentValues overload matching the field type.
+     * null values are not put.
+     */
+    void put(Object target, ContentValues values, String column) throws IllegalAccessException {
+        if (primitive) {
+            switch (type) {
+                case TYPE_INT:
+                case TYPE_LONG:
+                case TYPE_SHORT:
+                    values.put(column, field.getLong(target));
+                    return;
+                case TYPE_DOUBLE:
+                case TYPE_FLOAT:
+                    values.put(column, field.getDouble(target));
+                    return;
+            }
+        }
+        putValue(values, column, getStoredValue(target));
+    }
+
+    /**
+     * @return the field value of the target as it is stored: number, byte[] or text, null when the field is null.
+     */
+    Object getStoredValue(Object target) throws IllegalAccessException {
+        Object value = field.get(target);
+        if (value == null) {
+            return null;
+        } else if (type == TYPE_OBJECT) {
+            return JsonAdapters.toStoredString(value, field.getGenericType());
+        } else if (type == TYPE_BOOLEAN) {
+            return value.toString();
+        }
+        return value;
+    }
+
+    /**
+     * bind a value with the SQLiteStatement method matching its runtime type.
+     */
+    static void bindValue(SQLiteStatement statement, int index, Object value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            statement.bindLong(index, ((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            statement.bindDouble(index, ((Number) value).doubleValue());
+        } else if (value instanceof byte[]) {
+            statement.bindBlob(index, (byte[]) value);
+        } else {
+            statement.bindString(index, value.toString());
+        }
+    }
+
+    /**
+     * put a value with the ContentValues overload matching its runtime type.
+     * booleans are stored as "true"/"false" text, as they always have been.
+     */
+    static void putValue(ContentValues values, String column, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            values.put(column, ((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            values.put(column, ((Number) value).doubleValue());
+        } else if (value instanceof byte[]) {
+            values.put(column, (byte[]) value);
+        } else {
+            values.put(column, value.toString());
+        }
+    }
+
+    static long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        try {
+            return value == null ? 0 : Long.valueOf(value.toString());
+        } catch (NumberFormatException e) {
+            return (long) toDouble(value);
+        }
+    }
+
+    static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        try {
+            return value == null ? 0 : Double.valueOf(value.toString());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof Number) {
+            return ((Number) value).longValue() != 0;
+        }
+        return value != null && (Boolean.valueOf(value.toString()) || "1".equals(value.toString()));
+    }
+}
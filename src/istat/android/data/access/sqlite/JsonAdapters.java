@@ -0,0 +1,99 @@
+package istat.android.data.access.sqlite;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+
+import istat.android.data.access.sqlite.utils.Toolkit;
+
+/**
+ * Gson shared by every read and write of JSON-backed columns, with the TypeAdapter
+ * of each field generic type resolved once.
+ */
+final class JsonAdapters {
+    static volatile Gson gson = new Gson();
+    final static ConcurrentHashMap<Type, TypeAdapter<?>> typeAdapterPair = new ConcurrentHashMap<Type, TypeAdapter<?>>();
+
+    private JsonAdapters() {
+    }
+
+    static void setGson(Gson gson) {
+        if (gson == null) {
+            throw new IllegalArgumentException("gson can't be null.");
+        }
+        JsonAdapters.gson = gson;
+        typeAdapterPair.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    static TypeAdapter<Object> getAdapter(Type type) {
+        TypeAdapter<?> adapter = typeAdapterPair.get(type);
+        if (adapter == null) {
+            adapter = gson.getAdapter(TypeToken.get(type));
+            typeAdapterPair.put(type, adapter);
+        }
+        return (TypeAdapter<Object>) adapter;
+    }
+
+    static Object fromJson(String json, Type type) {
+        try {
+            return getAdapter(type).fromJson(json);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    static String toJson(Object value, Type type) {
+        return getAdapter(type).toJson(value);
+    }
+
+    /**
+     * @return the text a field value of the given type is stored as: JSON for collections, maps and arrays,
+     * toString() for any other object, so that it can still be matched with a where clause.
+     */
+    static String toStoredString(Object value, Type type) {
+        if (value instanceof Collection || value instanceof Map || value.getClass().isArray()) {
+            return toJson(value, type);
+        }
+        return value.toString();
+    }
+
+    /**
+     * @return the field value of the given type read back from its stored text, null when it can't be.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Object fromStoredString(String value, Type type) {
+        if (value == null) {
+            return null;
+        }
+        Class<?> cLass = getRawClass(type);
+        if (cLass != null && cLass.isEnum()) {
+            try {
+                return Enum.valueOf((Class<? extends Enum>) cLass, value);
+            } catch (IllegalArgumentException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+        return Toolkit.isJson(value) ? fromJson(value, type) : null;
+    }
+
+    private static Class<?> getRawClass(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        } else if (type instanceof ParameterizedType) {
+            return getRawClass(((ParameterizedType) type).getRawType());
+        } else if (type instanceof GenericArrayType) {
+            return Object[].class;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,65 @@
+package istat.android.data.access.sqlite;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * a transaction which nests into the one already opened on the thread, if any, as a SAVEPOINT:
+ * a nested transaction which is not successful only rolls back its own changes, not the enclosing transaction.
+ * The outermost level is a regular {@link SQLiteDatabase#beginTransaction()}.
+ * <p>
+ * SQLiteSession takes any statement starting with ROLLBACK for an end of its own transaction,
+ * so ROLLBACK TO is run behind a leading comment, which makes it a plain statement executed by SQLite itself.
+ * SAVEPOINT and RELEASE are plain statements already.
+ */
+final class NestedTransaction {
+    final static AtomicInteger savepointCount = new AtomicInteger();
+    final SQLiteDatabase db;
+    final String savepoint;
+    boolean successful = false;
+
+    private NestedTransaction(SQLiteDatabase db, String savepoint) {
+        this.db = db;
+        this.savepoint = savepoint;
+    }
+
+    static NestedTransaction begin(SQLiteDatabase db) {
+        if (!db.inTransaction()) {
+            db.beginTransaction();
+            return new NestedTransaction(db, null);
+        }
+        String savepoint = "sqlite_access_" + savepointCount.incrementAndGet();
+        db.execSQL("SAVEPOINT " + savepoint);
+        return new NestedTransaction(db, savepoint);
+    }
+
+    boolean isNested() {
+        return savepoint != null;
+    }
+
+    void setSuccessful() {
+        successful = true;
+        if (savepoint == null) {
+            db.setTransactionSuccessful();
+        }
+    }
+
+    /**
+     * commit or roll back, depending on {@link #setSuccessful()} having been called.
+     *
+     * @return true if the changes have been committed, or released into the enclosing transaction,
+     * false if they have been rolled back.
+     */
+    boolean end() {
+        if (savepoint == null) {
+            db.endTransaction();
+            return successful;
+        }
+        if (!successful) {
+            db.execSQL("/* savepoint */ ROLLBACK TO " + savepoint);
+        }
+        db.execSQL("RELEASE " + savepoint);
+        return successful;
+    }
+}
@@ -7,9 +7,17 @@ import android.net.Uri;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import com.google.gson.Gson;
+
 import istat.android.data.access.sqlite.utils.SQLiteParser;
 
 public final class SQLite {
@@ -22,6 +30,25 @@ public final class SQLite {
 
     }
 
+    /**
+     * set the Gson used to read and write JSON-backed columns, for example to register type adapters.
+     */
+    public static void setGson(Gson gson) {
+        JsonAdapters.setGson(gson);
+    }
+
+    public static Gson getGson() {
+        return JsonAdapters.gson;
+    }
+
+    /**
+     * close the statements compiled for the database. It is done automatically by the library
+     * before closing a database or executing statements, call it after changing the schema yourself.
+     */
+    public static void clearStatementCache(SQLiteDatabase db) {
+        StatementCache.clear(db);
+    }
+
     public static SQLiteDatabase getLastOpenedDb() {
         return lastOpenedDb;
     }
@@ -124,27 +151,26 @@ public final class SQLite {
 
     public static void prepareSQL(String dbName, PrepareHandler handler, boolean transactional) {
         SQLiteDatabase db = null;
+        NestedTransaction transaction = null;
         try {
             SQLiteDataAccess access = findOrCreateConnectionAccess(dbName);
 
             db = access.open();
             if (transactional) {
-                db.beginTransaction();
+                transaction = NestedTransaction.begin(db);
             }
             SQL sql = SQLite.from(db);
             handler.onSQLReady(sql);
-            if (transactional) {
-                db.setTransactionSuccessful();
+            if (transaction != null) {
+                transaction.setSuccessful();
             }
         } catch (Exception e) {
             handler.onSQLPrepareFail(e);
 
         } finally {
-            if (transactional && db != null) {
-                db.endTransaction();
-                if (db.isOpen()) {
-                    db.close();
-                }
+            if (transaction != null) {
+                transaction.end();
+                closeOutsideTransaction(db);
             }
 
         }
@@ -160,29 +186,26 @@ public final class SQLite {
 
     public static void prepareSQL(SQLiteConnection connection, boolean transactional, PrepareHandler handler) {
         SQLiteDatabase db = null;
+        NestedTransaction transaction = null;
         try {
             SQLiteDataAccess access = connect(connection);
             db = access.open();
             if (transactional) {
-                db.beginTransaction();
+                transaction = NestedTransaction.begin(db);
             }
             SQL sql = SQLite.from(db);
             handler.onSQLReady(sql);
-            if (db.isOpen()) {
-                db.close();
-            }
-            if (transactional) {
-                db.setTransactionSuccessful();
+            if (transaction != null) {
+                transaction.setSuccessful();
             }
         } catch (Exception e) {
             handler.onSQLPrepareFail(e);
         } finally {
-            if (transactional && db != null) {
-                db.endTransaction();
-                if (db.isOpen()) {
-                    db.close();
-                }
+            //the transaction is ended before closing the database, never the other way around.
+            if (transaction != null) {
+                transaction.end();
             }
+            closeOutsideTransaction(db);
         }
     }
 
@@ -191,28 +214,37 @@ public final class SQLite {
     }
 
     public static void prepareSQL(SQLiteDatabase db, boolean transactional, PrepareHandler handler) {
+        NestedTransaction transaction = null;
         try {
             if (transactional) {
-                db.beginTransaction();
+                transaction = NestedTransaction.begin(db);
             }
             SQL sql = SQLite.from(db);
             handler.onSQLReady(sql);
 
-            if (transactional) {
-                db.setTransactionSuccessful();
+            if (transaction != null) {
+                transaction.setSuccessful();
             }
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
-            if (transactional && db != null) {
-                db.endTransaction();
-                if (db.isOpen()) {
-                    db.close();
-                }
+            if (transaction != null) {
+                transaction.end();
+                closeOutsideTransaction(db);
             }
         }
     }
 
+    /**
+     * close the database, unless a transaction enclosing the prepared one is still opened on it.
+     */
+    private static void closeOutsideTransaction(SQLiteDatabase db) {
+        if (db != null && db.isOpen() && !db.inTransaction()) {
+            StatementCache.clear(db);
+            db.close();
+        }
+    }
+
     //    public static SQL from(String dbName) throws IllegalAccessException {
 //        SQLiteDataAccess access = findOrCreateConnectionAccess(dbName);
 //        SQLiteDatabase db = access.open();
@@ -347,27 +379,56 @@ public final class SQLite {
         }
 
 
+        /**
+         * delete the entities by their primary key, with DELETE ... WHERE pk IN (?, ...)
+         * statements chunked to the bind-argument limit, in a single transaction.
+         *
+         * @return count of deleted rows.
+         */
         public int delete(Object... object) {
-            int count = 0;
-            for (Object obj : object) {
-                if (delete(obj)) {
-                    count++;
-                }
-            }
-            return count;
+            return deleteEntities(Arrays.asList(object));
+        }
+
+        public <T> int delete(List<T> entities) {
+            return deleteEntities(entities);
         }
 
         public boolean delete(Object object) {
+            return deleteEntities(Collections.singletonList(object)) > 0;
+        }
+
+        private int deleteEntities(List<?> entities) {
+            LinkedHashMap<Class<?>, List<String>> classKeysPair = new LinkedHashMap<Class<?>, List<String>>();
+            for (Object entity : entities) {
+                try {
+                    String primaryKey = SQLiteModel.fromObject(entity).getPrimaryKey();
+                    List<String> keys = classKeysPair.get(entity.getClass());
+                    if (keys == null) {
+                        keys = new ArrayList<String>();
+                        classKeysPair.put(entity.getClass(), keys);
+                    }
+                    keys.add(primaryKey);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+            int count = 0;
+            NestedTransaction transaction = NestedTransaction.begin(db);
             try {
-                Class<?> cLass = object.getClass();
-                SQLiteModel model = SQLiteModel.fromClass(cLass);
-                return delete(cLass).where(model.getPrimaryFieldName()).equalTo(model.getPrimaryKey()).execute() > 0;
-            } catch (InstantiationException e) {
-                e.printStackTrace();
-            } catch (IllegalAccessException e) {
+                for (Map.Entry<Class<?>, List<String>> entry : classKeysPair.entrySet()) {
+                    count += delete(entry.getKey()).deleteByPrimaryKeys(entry.getValue());
+                }
+                transaction.setSuccessful();
+            } catch (Exception e) {
                 e.printStackTrace();
+                count = 0;
+            } finally {
+                transaction.end();
+            }
+            if (autoClose) {
+                close();
             }
-            return false;
+            return count;
         }
 
 //        public <T> SQLiteDelete delete(T... object) {
@@ -404,6 +465,18 @@ public final class SQLite {
             return insert.insert(entity);
         }
 
+        /**
+         * insert the entities of the iterator one chunk at a time, see {@link SQLiteInsert#insert(Iterator)}.
+         */
+        public <T> SQLiteInsert insert(Iterator<T> entities) {
+            SQLiteInsert insert = new SQLiteInsert(this);
+            return insert.insert(entities);
+        }
+
+        public <T> SQLiteInsert insertStream(Iterable<T> entities) {
+            return insert(entities.iterator());
+        }
+
         public SQLitePersist persist(Object entity) {
             SQLitePersist persist = new SQLitePersist(this);
             return persist.persist(entity);
@@ -419,19 +492,49 @@ public final class SQLite {
             return persist.persist(entity);
         }
 
-        public <T> void replaces(List<T> entity) {
-            try {
-                if (entity != null && !entity.isEmpty()) {
-                    delete(entity.get(0).getClass()).execute();
+        /**
+         * replace every row of the table of the entities with the entities. Entities of a single class without
+         * nested entities are loaded into a staging table first, then swapped in within one short transaction,
+         * so that the table is never seen empty; other entities are deleted and persisted in a single transaction.
+         */
+        public <T> void replaces(final List<T> entity) {
+            TableMapping mapping = StagingReload.getMapping(entity);
+            if (mapping != null) {
+                try {
+                    StagingReload.execute(db, mapping, entity);
+                } catch (Exception e) {
+                    e.printStackTrace();
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
+                if (autoClose) {
+                    close();
+                }
+                return;
             }
-            SQLitePersist insert = new SQLitePersist(this);
-            insert.persist(entity).execute();
+            inTransaction(new TransactionHandler() {
+                @Override
+                public void onTransaction(SQL sql) throws Exception {
+                    if (entity != null && !entity.isEmpty()) {
+                        delete(entity.get(0).getClass()).execute();
+                    }
+                    SQLitePersist insert = new SQLitePersist(sql);
+                    insert.persist(entity).execute();
+                }
+            });
         }
 
         //---------------------------------------------
+        /**
+         * persist the entities of the iterator one chunk at a time, see {@link SQLitePersist#persist(Iterator)}.
+         */
+        public <T> SQLitePersist persist(Iterator<T> entities) {
+            SQLitePersist persist = new SQLitePersist(this);
+            return persist.persist(entities);
+        }
+
+        public <T> SQLitePersist persistStream(Iterable<T> entities) {
+            return persist(entities.iterator());
+        }
+
         public SQLiteMerge merge(Object entity) {
             SQLiteMerge merge = new SQLiteMerge(this);
             return merge.merge(entity);
@@ -446,9 +549,22 @@ public final class SQLite {
             SQLiteMerge merge = new SQLiteMerge(this);
             return merge.merge(entity);
         }
+
+        /**
+         * merge the entities of the iterator one chunk at a time, see {@link SQLiteMerge#merge(Iterator)}.
+         */
+        public <T> SQLiteMerge merge(Iterator<T> entities) {
+            SQLiteMerge merge = new SQLiteMerge(this);
+            return merge.merge(entities);
+        }
+
+        public <T> SQLiteMerge mergeStream(Iterable<T> entities) {
+            return merge(entities.iterator());
+        }
         //---------------------------------------------
 
         public void executeStatements(List<String> statements) {
+            StatementCache.clear(db);
             for (String ask : statements) {
                 db.execSQL(ask);
             }
@@ -458,6 +574,7 @@ public final class SQLite {
         }
 
         public void executeStatements(String... statements) {
+            StatementCache.clear(db);
             for (String ask : statements) {
                 db.execSQL(ask);
             }
@@ -481,6 +598,7 @@ public final class SQLite {
         }
 
         public final void close() {
+            StatementCache.clear(db);
             db.close();
         }
 
@@ -489,7 +607,35 @@ public final class SQLite {
          */
         @Deprecated
         public final void closeDb() {
-            db.close();
+            close();
+        }
+
+        /**
+         * run the handler in a transaction, or in a SAVEPOINT when a transaction is already opened on this
+         * thread: if the handler throws, only its own changes are rolled back and the enclosing transaction goes on.
+         * An auto closable SQL is closed once the outermost transaction is over, not after each execution inside it.
+         *
+         * @return true if the changes of the handler have been committed (or released into the enclosing transaction),
+         * false if they have been rolled back.
+         */
+        public boolean inTransaction(TransactionHandler handler) {
+            boolean autoClose = this.autoClose;
+            this.autoClose = false;
+            NestedTransaction transaction = NestedTransaction.begin(db);
+            boolean out = false;
+            try {
+                handler.onTransaction(this);
+                transaction.setSuccessful();
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                out = transaction.end();
+                this.autoClose = autoClose;
+            }
+            if (autoClose && !transaction.isNested()) {
+                close();
+            }
+            return out;
         }
 
         public final void beginTransaction() {
@@ -514,6 +660,7 @@ public final class SQLite {
         String dbName;
         int dbVersion = 1;
         Context context;
+        SQLiteWriteBehind writeBehind;
 
         public static SQLiteConnection create(Context context, File file) {
             return create(context, file, -1, null);
@@ -553,6 +700,27 @@ public final class SQLite {
             this.context = context;
         }
 
+        /**
+         * @return the write-behind queue of this connection, created with default thresholds if needed.
+         */
+        public synchronized SQLiteWriteBehind writeBehind() {
+            if (writeBehind == null) {
+                writeBehind = new SQLiteWriteBehind(this, SQLiteWriteBehind.DEFAULT_MAX_PENDING_WRITES, SQLiteWriteBehind.DEFAULT_MAX_DELAY_MILLIS);
+            }
+            return writeBehind;
+        }
+
+        /**
+         * attach a write-behind queue to this connection, flushed once maxPendingWrites are queued
+         * or maxDelayMillis after the first of them. A queue already attached is returned as is.
+         */
+        public synchronized SQLiteWriteBehind writeBehind(int maxPendingWrites, long maxDelayMillis) {
+            if (writeBehind == null) {
+                writeBehind = new SQLiteWriteBehind(this, maxPendingWrites, maxDelayMillis);
+            }
+            return writeBehind;
+        }
+
         public final static void executeScripts(SQLiteDatabase db, List<String> scripts) {
             for (String script : scripts) {
                 db.execSQL(script);
@@ -574,6 +742,23 @@ public final class SQLite {
             db.execSQL(statement);
     }
 
+    public interface ProgressListener {
+        /**
+         * called each time a chunk of rows has been committed.
+         *
+         * @param done  count of rows written so far.
+         * @param total count of rows to write.
+         */
+        void onProgress(int done, int total);
+    }
+
+    public interface TransactionHandler {
+        /**
+         * @throws Exception to roll back the changes made by this handler.
+         */
+        void onTransaction(SQL sql) throws Exception;
+    }
+
     public interface PrepareHandler {
         public void onSQLReady(SQL sql);
 
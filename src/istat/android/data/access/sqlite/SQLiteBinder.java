@@ -0,0 +1,89 @@
+package istat.android.data.access.sqlite;
+
+import java.lang.reflect.Type;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * Straight-line binding between a mapped class and the database.
+ * Implementations are generated at compile time by the sqlite-access processor,
+ * one per mapped class, with the name &lt;ClassName&gt;_SQLiteBinder in the package of the class.
+ * When no binder exists the library falls back to reflection.
+ */
+public abstract class SQLiteBinder<T> {
+    public final static String SUFFIX = "_SQLiteBinder";
+
+    /**
+     * @return mapped columns, in the order of the column indexes given to {@link #fillFromCursor(Object, Cursor, int[])}.
+     */
+    public abstract String[] getColumns();
+
+    public abstract T newInstance();
+
+    public void fillFromCursor(T entity, Cursor c) {
+        fillFromCursor(entity, c, resolveColumnIndexes(c));
+    }
+
+    /**
+     * fill the entity from the current row, using column indexes resolved once for the whole cursor.
+     *
+     * @param columnIndexes cursor index of each column of {@link #getColumns()}, -1 when absent.
+     */
+    public abstract void fillFromCursor(T entity, Cursor c, int[] columnIndexes);
+
+    public abstract ContentValues toContentValues(T entity);
+
+    /**
+     * @return bit set of the columns of {@link #getColumns()} having a non null value, primitive fields always have one.
+     */
+    public abstract long getColumnSet(T entity);
+
+    /**
+     * bind the non null columns of the entity, in {@link #getColumns()} order, as the statements of
+     * the column set given by {@link #getColumnSet(Object)} expect them.
+     *
+     * @param index index of the first argument to bind.
+     * @return the next index to bind.
+     */
+    public abstract int bindTo(T entity, SQLiteStatement statement, int index);
+
+    public abstract String getPrimaryKey(T entity);
+
+    public final int[] resolveColumnIndexes(Cursor c) {
+        String[] columns = getColumns();
+        int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            indexes[i] = c.getColumnIndex(columns[i]);
+        }
+        return indexes;
+    }
+
+    protected static boolean readBoolean(Cursor c, int index) {
+        String value = c.getString(index);
+        return Boolean.valueOf(value) || "1".equals(value);
+    }
+
+    /**
+     * read a field of another type than the primitive ones, String and byte[], as the reflection path does.
+     *
+     * @return the value, null when it can't be read back.
+     */
+    protected static Object readObject(Cursor c, int index, Type type) {
+        return JsonAdapters.fromStoredString(c.getString(index), type);
+    }
+
+    /**
+     * @return the text a field of another type than the primitive ones, String and byte[], is stored as, as the reflection path does.
+     */
+    protected static String writeObject(Object value, Type type) {
+        return JsonAdapters.toStoredString(value, type);
+    }
+
+    static String binderClassName(Class<?> cLass) {
+        String name = cLass.getName();
+        int packageEnd = name.lastIndexOf('.') + 1;
+        return name.substring(0, packageEnd) + name.substring(packageEnd).replace('$', '_') + SUFFIX;
+    }
+}
@@ -21,6 +21,11 @@ abstract class SQLiteClause<Clause extends SQLiteClause<?>> {
     protected String groupBy = null;
     protected String having = null;
     protected int limit = -1;
+    /**
+     * columns of the ORDER BY, in order, with their direction.
+     */
+    protected List<String> sortColumns = new ArrayList<String>();
+    protected List<Boolean> sortDescending = new ArrayList<Boolean>();
     protected String[] columns;
     protected String table;
     final static int TYPE_CLAUSE_WHERE = 0, TYPE_CLAUSE_AND = 1,
@@ -70,16 +75,9 @@ abstract class SQLiteClause<Clause extends SQLiteClause<?>> {
     SQLiteClause(Class<?> clazz, SQLite.SQL sql) {
         //this.db = sql.db;
         this.sql = sql;
-        QueryAble entity = null;//null;//createModelFromClass(clazz);
-        try {
-            entity = SQLiteModel.fromClass(clazz);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        if (entity != null) {
-            table = entity.getName();
-            columns = entity.getColumns();
-        }
+        TableMapping mapping = TableMapping.of(clazz);
+        table = mapping.name;
+        columns = mapping.columns;
     }
 
     @SuppressWarnings("unchecked")
@@ -87,7 +85,9 @@ abstract class SQLiteClause<Clause extends SQLiteClause<?>> {
         if (TextUtils.isEmpty(orderBy))
             orderBy = buildWhereParam(column) + " " + value;
         else
-            orderBy += buildWhereParam(column) + " " + value;
+            orderBy += ", " + buildWhereParam(column) + " " + value;
+        sortColumns.add(buildWhereParam(column));
+        sortDescending.add(value != null && value.trim().equalsIgnoreCase("DESC"));
         return (Clause) this;
     }
 
@@ -106,17 +106,23 @@ abstract class SQLiteClause<Clause extends SQLiteClause<?>> {
     }
 
     public Clause groupBy(String column) {
-        if (TextUtils.isEmpty(orderBy))
-            orderBy = buildWhereParam(column);
+        if (TextUtils.isEmpty(groupBy))
+            groupBy = buildWhereParam(column);
         else
-            orderBy += ", " + buildWhereParam(column);
+            groupBy += ", " + buildWhereParam(column);
         return (Clause) this;
     }
 
     public Clause orderBy(String... columns) {
         for (String column : columns) {
-            boolean endWithDescOrAsc = column.toLowerCase().matches(".+\\s(desc|asc)$");
-            orderBy(column, endWithDescOrAsc ? "" : "ASC");
+            String trimmed = column.trim();
+            boolean endWithDescOrAsc = trimmed.toLowerCase().matches(".+\\s(desc|asc)$");
+            if (endWithDescOrAsc) {
+                String name = trimmed.replaceAll("\\s+\\S+$", "");
+                orderBy(name, trimmed.substring(name.length()).trim().toUpperCase());
+            } else {
+                orderBy(trimmed, "ASC");
+            }
         }
         return (Clause) this;
     }
@@ -81,6 +81,7 @@ public abstract class SQLiteDataAccess implements Closeable, SQLite.BootDescript
         if (db != null)
             if (db.isOpen()) {
                 try {
+                    StatementCache.clear(db);
                     db.close();
                     Log.i("openhelper", "BDD close");
                 } catch (Exception e) {
@@ -1,11 +1,19 @@
 package istat.android.data.access.sqlite;
 
+import java.util.Collection;
+
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
 
 public final class SQLiteDelete extends SQLiteClause<SQLiteDelete> {
 
+    Class<?> clazz;
+
     SQLiteDelete(Class<?> clazz, SQLite.SQL sql) {
         super(clazz, sql);
+        this.clazz = clazz;
     }
 
     @Override
@@ -21,4 +29,127 @@ public final class SQLiteDelete extends SQLiteClause<SQLiteDelete> {
         return out;
     }
 
+    /**
+     * delete the rows of the given primary keys, ignoring the where clause, with
+     * DELETE ... WHERE pk IN (?, ...) statements chunked to the bind-argument limit, in a single transaction.
+     *
+     * @return count of deleted rows.
+     */
+    public int executeByPrimaryKeys(Collection<?> primaryKeys) {
+        int out = deleteByPrimaryKeys(primaryKeys);
+        notifyExecuted();
+        return out;
+    }
+
+    int deleteByPrimaryKeys(Collection<?> primaryKeys) {
+        TableMapping mapping = TableMapping.of(clazz);
+        String[] keys = new String[primaryKeys.size()];
+        int index = 0;
+        for (Object key : primaryKeys) {
+            keys[index] = String.valueOf(key);
+            index++;
+        }
+        SQLiteDatabase db = sql.db;
+        int out = 0;
+        NestedTransaction transaction = NestedTransaction.begin(db);
+        try {
+            for (int start = 0; start < keys.length; start += StatementCache.MAX_BIND_ARGS) {
+                int count = Math.min(StatementCache.MAX_BIND_ARGS, keys.length - start);
+                String[] args = new String[count];
+                System.arraycopy(keys, start, args, 0, count);
+                out += deleteIn(db, mapping, args);
+            }
+            transaction.setSuccessful();
+        } finally {
+            transaction.end();
+        }
+        return out;
+    }
+
+    private static int deleteIn(SQLiteDatabase db, TableMapping mapping, String[] keys) {
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            in.append(i == 0 ? "?" : ",?");
+        }
+        String whereClause = "`" + mapping.primaryFieldName + "` IN (" + in + ")";
+        if (!StatementCache.isUpdateDeleteSupported()) {
+            return db.delete(mapping.name, whereClause, keys);
+        }
+        String delete = "DELETE FROM `" + mapping.name + "` WHERE " + whereClause;
+        if (keys.length < StatementCache.MAX_BIND_ARGS) {
+            //only full chunks are worth caching, the tail of each call has its own size.
+            SQLiteStatement statement = db.compileStatement(delete);
+            try {
+                statement.bindAllArgsAsStrings(keys);
+                return statement.executeUpdateDelete();
+            } finally {
+                statement.close();
+            }
+        }
+        StatementCache cache = StatementCache.of(db);
+        SQLiteStatement statement = cache.acquire(StatementCache.OPERATION_DELETE + ":" + mapping.name + ":" + keys.length, delete);
+        try {
+            synchronized (statement) {
+                statement.clearBindings();
+                statement.bindAllArgsAsStrings(keys);
+                return statement.executeUpdateDelete();
+            }
+        } finally {
+            cache.release(statement);
+        }
+    }
+
+    /**
+     * delete the rows matching the clause in transactions covering rowIdsPerChunk row ids each,
+     * so that the write lock is released between chunks of a very large delete.
+     *
+     * @param rowIdsPerChunk width of the row id range deleted by each transaction, &gt; 0.
+     * @return count of deleted rows.
+     * @throws IllegalArgumentException if rowIdsPerChunk is not positive.
+     */
+    public int executeInRowIdChunks(int rowIdsPerChunk) {
+        if (rowIdsPerChunk <= 0) {
+            throw new IllegalArgumentException("rowIdsPerChunk must be positive: " + rowIdsPerChunk);
+        }
+        SQLiteDatabase db = sql.db;
+        String whereClause = getWhereClause();
+        String[] whereParams = getWhereParams();
+        int paramCount = whereParams != null ? whereParams.length : 0;
+        String chunkClause = "rowid >= ? AND rowid <= ?" + (TextUtils.isEmpty(whereClause) ? "" : " AND (" + whereClause + ")");
+        String[] args = new String[paramCount + 2];
+        if (paramCount > 0) {
+            System.arraycopy(whereParams, 0, args, 2, paramCount);
+        }
+        int out = 0;
+        Cursor c = db.rawQuery("SELECT MIN(rowid), MAX(rowid) FROM `" + table + "`", null);
+        try {
+            if (c.moveToFirst() && !c.isNull(0)) {
+                long min = c.getLong(0), max = c.getLong(1), to;
+                for (long from = min; ; from = to + 1) {
+                    //bounds are inclusive, so that no range overflows near Long.MAX_VALUE.
+                    to = from + (rowIdsPerChunk - 1);
+                    if (to < from || to > max) {
+                        to = max;
+                    }
+                    args[0] = String.valueOf(from);
+                    args[1] = String.valueOf(to);
+                    NestedTransaction transaction = NestedTransaction.begin(db);
+                    try {
+                        out += db.delete(table, chunkClause, args);
+                        transaction.setSuccessful();
+                    } finally {
+                        transaction.end();
+                    }
+                    if (to >= max) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            c.close();
+        }
+        notifyExecuted();
+        return out;
+    }
+
 }
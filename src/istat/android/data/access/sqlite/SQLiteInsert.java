@@ -1,14 +1,103 @@
 package istat.android.data.access.sqlite;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
+import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteDatabase;
+
 public final class SQLiteInsert {
+    public final static int DEFAULT_STREAM_CHUNK_SIZE = 500;
     List<QueryAble> insertions = new ArrayList<QueryAble>();
     SQLite.SQL sql;
+    BulkExecutor executor;
+    boolean multiRowInsert = false;
+    int conflictAlgorithm = SQLiteDatabase.CONFLICT_ABORT;
+    final List<Object> skipped = new ArrayList<Object>();
+    Iterator<?> source;
+    final BulkExecutor.RowWriter<QueryAble> rowWriter = new BulkExecutor.RowWriter<QueryAble>() {
+        @Override
+        public long write(QueryAble insertion) throws IllegalAccessException {
+            SQLiteModel model = (SQLiteModel) insertion;
+            long id;
+            try {
+                id = model.insert(sql.db, conflictAlgorithm);
+            } catch (SQLiteConstraintException e) {
+                throw new IllegalAccessException("entity :" + insertion + " conflicts inside table " + insertion.getName() + ": " + e.getMessage());
+            }
+            if (id == -1) {
+                skipped.add(model.entity != null ? model.entity : model);
+            }
+            return id;
+        }
+    };
 
     SQLiteInsert(SQLite.SQL sql) {
         this.sql = sql;
+        this.executor = new BulkExecutor(sql.db);
+    }
+
+    /**
+     * write the insertions in transactions of chunkSize rows instead of one by one.
+     *
+     * @param chunkSize rows per transaction, &lt;= 0 to disable.
+     */
+    public SQLiteInsert setChunkSize(int chunkSize) {
+        executor.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * pack as many rows as fit under the bind-argument limit into each INSERT ... VALUES (...),(...) statement.
+     * Rows are not checked for existence first: a duplicate fails the execution with an
+     * IllegalAccessException and rolls back the current chunk (see {@link #setChunkSize(int)}). Unsupported before Jelly Bean, for
+     * entities of different classes and for entities holding nested models; insertion is then done row by row.
+     * <p>
+     * Consecutive rows having the same null columns share a statement, which leaves those columns to their default value.
+     * SQLite only reports the last row id of each statement, the id returned for the other rows of the
+     * statement is computed backward from it, which is exact as long as SQLite assigns the row ids:
+     * insertion is done row by row as soon as an entity has its primary key set.
+     * Not used with the IGNORE and REPLACE conflict algorithms, whose row ids can't be computed that way.
+     */
+    public SQLiteInsert setMultiRowInsert(boolean multiRowInsert) {
+        this.multiRowInsert = multiRowInsert;
+        return this;
+    }
+
+    /**
+     * choose how SQLite handles a row conflicting with an existing one, {@link SQLiteDatabase#CONFLICT_ABORT} by default.
+     * With ABORT, FAIL or ROLLBACK a conflict makes {@link #execute()} throw an IllegalAccessException;
+     * with IGNORE the row is skipped, its returned id is -1 and it is listed by {@link #getSkipped()};
+     * with REPLACE the existing row is replaced.
+     *
+     * @param conflictAlgorithm one of SQLiteDatabase.CONFLICT_ABORT, CONFLICT_FAIL, CONFLICT_IGNORE, CONFLICT_REPLACE, CONFLICT_ROLLBACK.
+     */
+    public SQLiteInsert setConflictAlgorithm(int conflictAlgorithm) {
+        this.conflictAlgorithm = conflictAlgorithm;
+        return this;
+    }
+
+    /**
+     * @return entities ignored by the last execution because they conflicted with existing rows.
+     */
+    public List<Object> getSkipped() {
+        return new ArrayList<Object>(skipped);
+    }
+
+    public SQLiteInsert setProgressListener(SQLite.ProgressListener listener) {
+        executor.progressListener = listener;
+        return this;
+    }
+
+    /**
+     * insert the entities of the iterator, which is consumed by {@link #execute()} one chunk at a time
+     * ({@link #setChunkSize(int)}, {@value #DEFAULT_STREAM_CHUNK_SIZE} rows by default), each chunk in its own transaction.
+     * The entities added before are inserted first. The progress listener then receives -1 as total.
+     */
+    public SQLiteInsert insert(Iterator<?> source) {
+        this.source = source;
+        return this;
     }
 
     public SQLiteInsert insert(Object insert) {
@@ -45,45 +134,153 @@ public final class SQLiteInsert {
         return this;
     }
 
+    /**
+     * @param ignoreDuplicate true to skip the rows which already exist (see {@link #getSkipped()}),
+     *                        false to fail with a RuntimeException on the first of them.
+     */
     public long[] execute(boolean ignoreDuplicate) {
-        List<Long> tmp = new ArrayList<Long>();
+        if (ignoreDuplicate) {
+            conflictAlgorithm = SQLiteDatabase.CONFLICT_IGNORE;
+        }
         try {
-            if (insertions == null || insertions.size() == 0)
-                return new long[]{0};
-            for (QueryAble insertion : insertions) {
-                if (insertion.exist(sql.db)) {
-                    throw new IllegalAccessException("entity :0" + insertion + " already exist inside table " + insertion.getName());
-                }
-                tmp.add(insertion.persist(sql.db));
-            }
-            insertions.clear();
-            notifyExecuted();
+            return execute();
         } catch (IllegalAccessException e) {
-            e.printStackTrace();
-            if (!ignoreDuplicate) {
-                throw new RuntimeException(e);
-            }
-        }
-        long[] out = new long[tmp.size()];
-        for (int i = 0; i < tmp.size(); i++) {
-            out[i] = tmp.get(i);
+            throw new RuntimeException(e);
         }
-        return out;
     }
 
     public long[] execute() throws IllegalAccessException {
+        skipped.clear();
+        if (source != null) {
+            return executeStream();
+        }
         if (insertions == null || insertions.size() == 0)
             return new long[]{0};
-        long[] out = new long[insertions.size()];
-        int index = 0;
+        long[] out = executeInsertions();
+        insertions.clear();
+        notifyExecuted();
+        return out;
+    }
+
+    private long[] executeInsertions() throws IllegalAccessException {
+        TableMapping mapping = getMultiRowMapping();
+        if (mapping != null) {
+            return executeMultiRow(mapping);
+        }
+        return executor.execute(insertions, rowWriter);
+    }
+
+    /**
+     * convert and insert the source one chunk at a time, after the entities added before, see {@link BulkExecutor#executeStream(List, Iterator, BulkExecutor.ChunkWriter)}.
+     */
+    private long[] executeStream() throws IllegalAccessException {
+        Iterator<?> iterator = source;
+        source = null;
+        long[] out = executor.executeStream(insertions, iterator, new BulkExecutor.ChunkWriter() {
+            @Override
+            public void add(Object element) {
+                insert(element);
+            }
+
+            @Override
+            public long[] write() throws IllegalAccessException {
+                return executeInsertions();
+            }
+        });
+        notifyExecuted();
+        return out;
+    }
+
+    /**
+     * @return the mapping shared by every insertion when they can be inserted with multi-row statements, null otherwise.
+     */
+    private TableMapping getMultiRowMapping() {
+        if (!multiRowInsert || !StatementCache.isMultiRowInsertSupported() || insertions.isEmpty()
+                || conflictAlgorithm == SQLiteDatabase.CONFLICT_IGNORE || conflictAlgorithm == SQLiteDatabase.CONFLICT_REPLACE) {
+            return null;
+        }
+        TableMapping mapping = null;
         for (QueryAble insertion : insertions) {
-            if (insertion.exist(sql.db)) {
-                throw new IllegalAccessException("entity :0" + insertion + " already exist inside table " + insertion.getName());
+            if (!(insertion instanceof SQLiteModel) || ((SQLiteModel) insertion).entity == null) {
+                return null;
             }
-            out[index] = insertion.persist(sql.db);
+            TableMapping insertionMapping = ((SQLiteModel) insertion).mapping;
+            if (mapping != null && mapping != insertionMapping) {
+                return null;
+            }
+            mapping = insertionMapping;
+        }
+        if (!StatementCache.isSupported(mapping)) {
+            return null;
+        }
+        for (FieldAccessor accessor : mapping.accessors) {
+            if (accessor != null && QueryAble.class.isAssignableFrom(accessor.field.getType())) {
+                return null;
+            }
+        }
+        return mapping;
+    }
+
+    private long[] executeMultiRow(TableMapping mapping) throws IllegalAccessException {
+        int total = insertions.size();
+        Object[][] values = new Object[total][];
+        long[] columnSets = new long[total];
+        int primaryKeyIndex = mapping.primaryFieldName != null ? mapping.indexOf(mapping.primaryFieldName) : -1;
+        for (int i = 0; i < total; i++) {
+            values[i] = new Object[mapping.columns.length];
+            columnSets[i] = StatementCache.readValues(mapping, ((SQLiteModel) insertions.get(i)).entity, values[i]);
+            if (primaryKeyIndex >= 0 && values[i][primaryKeyIndex] != null) {
+                //the row ids of explicit keys can't be computed from the last one.
+                return executor.execute(insertions, rowWriter);
+            }
+        }
+        int rowsPerInsert = StatementCache.getRowsPerInsert(mapping);
+        int chunk = executor.chunkSize > 0 ? executor.chunkSize : total;
+        StatementCache cache = StatementCache.of(sql.db);
+        List<Object[]> rows = new ArrayList<Object[]>(rowsPerInsert);
+        long[] out = new long[total];
+        executor.results = out;
+        executor.committed = 0;
+        int start = 0;
+        while (start < total) {
+            int end = Math.min(total, start + Math.max(chunk, rowsPerInsert));
+            NestedTransaction transaction = NestedTransaction.begin(sql.db);
+            try {
+                int from = start;
+                while (from < end) {
+                    long columnSet = columnSets[from];
+                    if (columnSet == 0) {
+                        out[from] = cache.executeInsert(mapping, ((SQLiteModel) insertions.get(from)).entity);
+                        from++;
+                        continue;
+                    }
+                    int maxRows = StatementCache.getRowsPerInsert(Long.bitCount(columnSet));
+                    int to = from + 1;
+                    while (to < end && to - from < maxRows && columnSets[to] == columnSet) {
+                        to++;
+                    }
+                    rows.clear();
+                    for (int i = from; i < to; i++) {
+                        rows.add(values[i]);
+                    }
+                    long lastRowId = cache.executeMultiRowInsert(mapping, columnSet, rows);
+                    for (int i = from; i < to; i++) {
+                        out[i] = lastRowId - (to - 1 - i);
+                    }
+                    from = to;
+                }
+                transaction.setSuccessful();
+            } catch (SQLiteConstraintException e) {
+                throw new IllegalAccessException("insertion into table " + mapping.name + " failed: " + e.getMessage());
+            } finally {
+                transaction.end();
+            }
+            executor.committed = end;
+            if (executor.progressListener != null) {
+                executor.progressListener.onProgress(end, total);
+            }
+            start = end;
         }
-        insertions.clear();
-        notifyExecuted();
         return out;
     }
 
@@ -1,14 +1,58 @@
 package istat.android.data.access.sqlite;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 public final class SQLiteMerge {
     List<SQLiteModel> merges = new ArrayList<SQLiteModel>();
     SQLite.SQL sql;
+    boolean refresh = true;
+    BulkExecutor executor;
+    Iterator<?> source;
+    final BulkExecutor.RowWriter<SQLiteModel> rowWriter = new BulkExecutor.RowWriter<SQLiteModel>() {
+        @Override
+        public long write(SQLiteModel merge) {
+            return merge.merge(sql.db, refresh);
+        }
+    };
 
     SQLiteMerge(SQLite.SQL sql) {
         this.sql = sql;
+        this.executor = new BulkExecutor(sql.db);
+    }
+
+    /**
+     * write the merges in transactions of chunkSize rows instead of one by one.
+     *
+     * @param chunkSize rows per transaction, &lt;= 0 to disable.
+     */
+    public SQLiteMerge setChunkSize(int chunkSize) {
+        executor.chunkSize = chunkSize;
+        return this;
+    }
+
+    public SQLiteMerge setProgressListener(SQLite.ProgressListener listener) {
+        executor.progressListener = listener;
+        return this;
+    }
+
+    /**
+     * @param refresh false to skip reading each merged row back, true by default.
+     */
+    public SQLiteMerge setRefresh(boolean refresh) {
+        this.refresh = refresh;
+        return this;
+    }
+
+    /**
+     * merge the entities of the iterator, which is consumed by {@link #execute()} one chunk at a time
+     * ({@link #setChunkSize(int)}, {@value SQLiteInsert#DEFAULT_STREAM_CHUNK_SIZE} rows by default), each chunk in its own transaction.
+     * The entities added before are merged first. The progress listener then receives -1 as total.
+     */
+    public SQLiteMerge merge(Iterator<?> source) {
+        this.source = source;
+        return this;
     }
 
     public SQLiteMerge merge(Object merge) {
@@ -46,18 +90,53 @@ public final class SQLiteMerge {
     }
 
     public long[] execute() {
+        if (source != null) {
+            return executeStream();
+        }
         if (merges == null || merges.isEmpty())
             return new long[]{0};
-        long[] out = new long[merges.size()];
-        int index = 0;
-        for (SQLiteModel merge : merges) {
-            out[index] = merge.merge(sql.db);
-        }
+        long[] out = executeMerges();
         merges.clear();
         notifyExecuted();
         return out;
     }
 
+    private long[] executeMerges() {
+        try {
+            return executor.execute(merges, rowWriter);
+        } catch (IllegalAccessException e) {
+            //merge never refuse a row.
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * convert and merge the source one chunk at a time, after the entities added before, see {@link BulkExecutor#executeStream(List, Iterator, BulkExecutor.ChunkWriter)}.
+     */
+    private long[] executeStream() {
+        Iterator<?> iterator = source;
+        source = null;
+        long[] out;
+        try {
+            out = executor.executeStream(merges, iterator, new BulkExecutor.ChunkWriter() {
+                @Override
+                public void add(Object element) {
+                    merge(element);
+                }
+
+                @Override
+                public long[] write() {
+                    return executeMerges();
+                }
+            });
+        } catch (IllegalAccessException e) {
+            //merge never refuse a row.
+            throw new RuntimeException(e);
+        }
+        notifyExecuted();
+        return out;
+    }
+
     private void notifyExecuted() {
         if (sql.autoClose) {
             sql.close();
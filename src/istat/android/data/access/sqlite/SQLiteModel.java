@@ -6,12 +6,12 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.lang.reflect.Field;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import istat.android.data.access.sqlite.interfaces.JSONable;
 import istat.android.data.access.sqlite.utils.Toolkit;
@@ -24,20 +24,26 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.text.TextUtils;
-import android.util.Log;
 
-import com.google.gson.Gson;
 
 public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
     Class<?> modelClass = Object.class;
     HashMap<String, Object> fieldNameValuePair = new HashMap<String, Object>();
-    HashMap<String, Field> nameFieldPair = new HashMap<String, Field>();
-    HashMap<String, Field> nestedTableFieldPair = new HashMap<String, Field>();
+    Map<String, Field> nameFieldPair = new HashMap<String, Field>();
+    Map<String, Field> nestedTableFieldPair = new HashMap<String, Field>();
     //    protected String tb_name, primary_key;
 //    protected String[] tb_projection;
     public static String TAG_CLASS = "istat.android.data.access.SQLiteModel.class";
+    /**
+     * returned by {@link #updateChanges(SQLiteDatabase)}.
+     */
+    final static int CHANGES_NOT_TRACKED = -1, CHANGES_NONE = -2;
     private Object instance;
-    List<String> reflectionFieldNames = new ArrayList<String>();
+    TableMapping mapping;
+    /**
+     * the object this model has been created from, mapped properties are read and written on it.
+     */
+    Object entity;
 
     SQLiteModel() {
         instance = this;
@@ -48,6 +54,9 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
     }
 
     public String getPrimaryKey() {
+        if (entity != null && mapping.binder != null) {
+            return mapping.binder.getPrimaryKey(entity);
+        }
         return getString(getPrimaryFieldName());
     }
 
@@ -65,11 +74,27 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
     }
 
     protected boolean getBoolean(String name) {
+        FieldAccessor accessor = getEntityAccessor(name);
+        if (accessor != null) {
+            try {
+                return accessor.getBoolean(entity);
+            } catch (Exception e) {
+                return false;
+            }
+        }
         return Boolean.valueOf(getString(name));
     }
 
     protected double getDouble(String name) {
         try {
+            FieldAccessor accessor = getEntityAccessor(name);
+            if (accessor != null) {
+                return accessor.getDouble(entity);
+            }
+            Object value = get(name);
+            if (value instanceof Number) {
+                return ((Number) value).doubleValue();
+            }
             return Double.valueOf(getString(name));
         } catch (Exception e) {
             return 0;
@@ -78,8 +103,15 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
 
     protected float getFloat(String name) {
         try {
-            String value = getString(name);
-            return Float.valueOf(value);
+            FieldAccessor accessor = getEntityAccessor(name);
+            if (accessor != null) {
+                return accessor.getFloat(entity);
+            }
+            Object value = get(name);
+            if (value instanceof Number) {
+                return ((Number) value).floatValue();
+            }
+            return Float.valueOf(getString(name));
         } catch (Exception e) {
             return 0;
         }
@@ -87,6 +119,14 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
 
     protected long getLong(String name) {
         try {
+            FieldAccessor accessor = getEntityAccessor(name);
+            if (accessor != null) {
+                return accessor.getLong(entity);
+            }
+            Object value = get(name);
+            if (value instanceof Number) {
+                return ((Number) value).longValue();
+            }
             return Long.valueOf(getString(name));
         } catch (Exception e) {
             return 0;
@@ -95,65 +135,73 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
 
     protected int getInteger(String name) {
         try {
+            FieldAccessor accessor = getEntityAccessor(name);
+            if (accessor != null) {
+                return accessor.getInt(entity);
+            }
+            Object value = get(name);
+            if (value instanceof Number) {
+                return ((Number) value).intValue();
+            }
             return Integer.valueOf(getString(name));
         } catch (Exception e) {
             return 0;
         }
     }
 
+    FieldAccessor getEntityAccessor(String name) {
+        return entity != null ? mapping.getAccessor(name) : null;
+    }
+
     protected static <T extends SQLiteModel> void set(String name, T obj,
                                                       Object value) {
-        try {
-            if (obj.reflectionFieldNames.contains(name)) {
-                Field field = obj.getClass().getDeclaredField(name);
-                field.setAccessible(true);
-                field.set(obj, value);
-            } else {
-                obj.fieldNameValuePair.put(name, value);
+        FieldAccessor accessor = obj.getEntityAccessor(name);
+        if (accessor != null) {
+            try {
+                accessor.set(obj.entity, value);
+                return;
+            } catch (IllegalArgumentException e) {
+                //value can't be assigned to the field, keep it inside the model.
+            } catch (Exception e) {
+                e.printStackTrace();
             }
-
-        } catch (NoSuchFieldException noe) {
-            obj.fieldNameValuePair.put(name, value);
-            noe.printStackTrace();
-        } catch (Exception e) {
-            // Log.e("ERROR", name);
-            e.printStackTrace();
-            obj.fieldNameValuePair.put(name, value);
-
         }
+        obj.fieldNameValuePair.put(name, value);
     }
 
     protected static <T extends SQLiteModel> Object get(String name, T obj) {
-        try {
-            if (obj.reflectionFieldNames.contains(name)) {
-                Field field = obj.getClass().getDeclaredField(name);
-                field.setAccessible(true);
-                return field.get(obj);
-            } else {
-                return obj.fieldNameValuePair.get(name);
+        FieldAccessor accessor = obj.getEntityAccessor(name);
+        if (accessor != null) {
+            try {
+                return accessor.get(obj.entity);
+            } catch (Exception e) {
+                e.printStackTrace();
             }
-
-        } catch (NoSuchFieldException noe) {
-            noe.printStackTrace();
-            return obj.fieldNameValuePair.get(name);
-
-        } catch (Exception e) {
-            // Log.e("ERROR", name);
-            e.printStackTrace();
-            return obj.fieldNameValuePair.get(name);
-
         }
+        return obj.fieldNameValuePair.get(name);
     }
 
     public HashMap<String, Object> toHashMap() {
         HashMap<String, Object> map = new HashMap<String, Object>();
-        map.putAll(map);
+        map.putAll(fieldNameValuePair);
+        if (entity != null) {
+            for (int i = 0; i < mapping.columns.length; i++) {
+                FieldAccessor accessor = mapping.accessors[i];
+                if (accessor != null) {
+                    try {
+                        map.put(mapping.columns[i], accessor.get(entity));
+                    } catch (IllegalAccessException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
         return map;
     }
 
     @Override
     public JSONObject toJson() {
-        JSONObject json = createJsonFromHashMap(fieldNameValuePair);
+        JSONObject json = createJsonFromHashMap(entity != null ? toHashMap() : fieldNameValuePair);
         try {
             String className = instance.getClass() + "";
             className = className.substring(6, className.length()).trim();
@@ -181,13 +229,31 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
 
     @Override
     public ContentValues toContentValues() {
+        if (entity != null) {
+            return entityToContentValues();
+        }
         ContentValues pairs = new ContentValues();
-        String[] columns = getColumns();
+        String[] columns = columns();
         for (String column : columns) {
             if (column != null) {
-                if (get(column) != null) {
-                    String values = getString(column);
-                    pairs.put(column, values);
+                FieldAccessor.putValue(pairs, column, get(column));
+            }
+        }
+        return pairs;
+    }
+
+    private ContentValues entityToContentValues() {
+        if (mapping.binder != null) {
+            return mapping.binder.toContentValues(entity);
+        }
+        ContentValues pairs = new ContentValues();
+        for (int i = 0; i < mapping.columns.length; i++) {
+            FieldAccessor accessor = mapping.accessors[i];
+            if (accessor != null) {
+                try {
+                    accessor.put(entity, pairs, mapping.columns[i]);
+                } catch (IllegalAccessException e) {
+                    e.printStackTrace();
                 }
             }
         }
@@ -214,22 +280,51 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
 
     @Override
     public final void fillFromCursor(Cursor c) {
-        for (String projection : getColumns()) {
-            if (projection != null) {
-                int columnIndex = c.getColumnIndex(projection);
-                if (columnIndex >= 0) {
-                    String values = c.getString(columnIndex);
-                    if (!TextUtils.isEmpty(values)) {
-                        set(projection, values);
-                    }
+        if (mapping != null) {
+            fillFromCursor(c, mapping.resolveColumnIndexes(c));
+            return;
+        }
+        String[] columns = getColumns();
+        int[] columnIndexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            columnIndexes[i] = columns[i] != null ? c.getColumnIndex(columns[i]) : -1;
+        }
+        fillFromCursor(c, columnIndexes);
+    }
+
+    /**
+     * @param columnIndexes cursor index of each column of {@link #getColumns()}, -1 when absent.
+     */
+    final void fillFromCursor(Cursor c, int[] columnIndexes) {
+        String[] columns = columns();
+        for (int i = 0; i < columns.length; i++) {
+            int columnIndex = columnIndexes[i];
+            FieldAccessor accessor = mapping != null ? mapping.accessors[i] : null;
+            if (columnIndex >= 0 && accessor != null && accessor.type != FieldAccessor.TYPE_STRING
+                    && accessor.type != FieldAccessor.TYPE_OBJECT) {
+                Object value = accessor.read(c, columnIndex);
+                if (value != null) {
+                    set(columns[i], value);
+                }
+            } else if (columnIndex >= 0) {
+                String values = c.getString(columnIndex);
+                if (!TextUtils.isEmpty(values)) {
+                    set(columns[i], values);
                 }
             }
         }
     }
 
+    /**
+     * @return the columns of the model, the array shared by the mapping when there is one, not to be modified.
+     */
+    final String[] columns() {
+        return mapping != null ? mapping.columns : getColumns();
+    }
+
     public final void fillFromPrimaryKey(String primaryKey, SQLiteDatabase db) {
         String tb_name = getName();
-        String[] tb_projection = getColumns();
+        String[] tb_projection = columns();
         String primary_key_name = getPrimaryFieldName();
         Cursor c = db.query(tb_name, tb_projection, primary_key_name + "=?",
                 new String[]{primaryKey}, null, null, null);
@@ -245,10 +340,26 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
     }
 
     public long merge(SQLiteDatabase db) {
+        return merge(db, true);
+    }
+
+    /**
+     * @param refresh true to read the row back once merged, so that the model holds its stored values.
+     */
+    public long merge(SQLiteDatabase db, boolean refresh) {
         long out;
-        if (exist(db)) {
+        if (isStatementCacheable() && StatementCache.isUpdateDeleteSupported()) {
+            boolean tracked = isTracked();
+            out = upsert(db);
+            //a tracked entity already holds the values of its row.
+            if (refresh && !tracked && hasPrimaryKey()) {
+                refresh(db);
+            }
+        } else if (exist(db)) {
             out = update(db);
-            refresh(db);
+            if (refresh) {
+                refresh(db);
+            }
         } else {
             out = insert(db);
         }
@@ -257,6 +368,9 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
 
     @Override
     public long persist(SQLiteDatabase db) {
+        if (isStatementCacheable() && StatementCache.isUpdateDeleteSupported()) {
+            return upsert(db);
+        }
         if (exist(db)) {
             return update(db);
         } else {
@@ -264,6 +378,45 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
         }
     }
 
+    /**
+     * insert or update the entity without querying its existence first: a native UPSERT when SQLite
+     * supports it, otherwise an UPDATE of its row followed by an INSERT when no row has been changed.
+     *
+     * @return the row id of an inserted row, or the count of updated rows, as an exist() check followed
+     * by {@link #insert(SQLiteDatabase)} or {@link #update(SQLiteDatabase)} would.
+     */
+    long upsert(SQLiteDatabase db) {
+        long out = 0;
+        try {
+            StatementCache cache = StatementCache.of(db);
+            String primaryKey = getPrimaryKey();
+            if (TextUtils.isEmpty(primaryKey)) {
+                out = cache.executeInsert(mapping, entity);
+            } else {
+                //a tracked entity whose row still exists only needs its changed columns to be written.
+                out = updateChanges(db);
+                if (out == CHANGES_NONE) {
+                    //nothing to write, unless the row has been deleted meanwhile.
+                    out = exist(db) ? 0 : cache.executeInsert(mapping, entity);
+                } else {
+                    if (out == CHANGES_NOT_TRACKED) {
+                        out = cache.executeUpsert(mapping, entity);
+                        if (out == StatementCache.UPSERT_UNSUPPORTED) {
+                            out = cache.executeUpdate(mapping, entity, primaryKey);
+                        }
+                    }
+                    if (out == 0) {
+                        out = cache.executeInsert(mapping, entity);
+                    }
+                }
+            }
+            persistEmbeddedDbEntity(db);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return out;
+    }
+
     protected void onPersistEmbeddedDbEntity(SQLiteDatabase db, QueryAble entity) {
         entity.persist(db);
     }
@@ -272,7 +425,11 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
     public long insert(SQLiteDatabase db) {
         long out = 0;
         try {
-            out = db.insert(getName(), null, toContentValues());
+            if (isStatementCacheable()) {
+                out = StatementCache.of(db).executeInsert(mapping, entity);
+            } else {
+                out = db.insert(getName(), null, toContentValues());
+            }
             persistEmbeddedDbEntity(db);
         } catch (Exception e) {
             e.printStackTrace();
@@ -282,11 +439,41 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
         return out;
     }
 
+    /**
+     * insert the entity, leaving conflicts to SQLite instead of checking its existence first.
+     *
+     * @param conflictAlgorithm one of SQLiteDatabase.CONFLICT_* constants.
+     * @return the row id of the inserted row, -1 if it has been ignored.
+     * @throws android.database.sqlite.SQLiteConstraintException if the row conflicts and the algorithm is ABORT, FAIL or ROLLBACK.
+     */
+    long insert(SQLiteDatabase db, int conflictAlgorithm) throws IllegalAccessException {
+        long out;
+        if (isStatementCacheable()) {
+            out = StatementCache.of(db).executeInsert(mapping, entity, conflictAlgorithm);
+        } else {
+            out = db.insertWithOnConflict(getName(), null, toContentValues(), conflictAlgorithm);
+        }
+        if (out != -1) {
+            persistEmbeddedDbEntity(db);
+        }
+        return out;
+    }
+
     public int update(SQLiteDatabase db) {
         int out = 0;
         try {
-            out = update(db, getPrimaryFieldName() + "= ?",
-                    new String[]{getPrimaryKey()});
+            //only the changed columns of a tracked entity are written.
+            out = updateChanges(db);
+            if (out == CHANGES_NONE) {
+                out = 0;
+            } else if (out == CHANGES_NOT_TRACKED) {
+                if (isStatementCacheable() && StatementCache.isUpdateDeleteSupported()) {
+                    out = StatementCache.of(db).executeUpdate(mapping, entity, getPrimaryKey());
+                } else {
+                    out = update(db, getPrimaryFieldName() + "= ?",
+                            new String[]{getPrimaryKey()});
+                }
+            }
             persistEmbeddedDbEntity(db);
         } catch (Exception e) {
             e.printStackTrace();
@@ -336,10 +523,71 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
     }
 
     public int delete(SQLiteDatabase db) {
+        if (isStatementCacheable() && StatementCache.isUpdateDeleteSupported()) {
+            return StatementCache.of(db).executeDelete(mapping, getPrimaryKey());
+        }
         return delete(db, getPrimaryFieldName() + "= ?",
                 new String[]{getPrimaryKey()});
     }
 
+    /**
+     * @return true if the entity has been selected with {@link SQLiteSelect#trackChanges()}.
+     */
+    boolean isTracked() {
+        return entity != null && EntitySnapshots.get(entity) != null;
+    }
+
+    /**
+     * write only the columns of a tracked entity which changed since it has been selected or last written,
+     * nothing at all when none did.
+     *
+     * @return count of updated rows, {@link #CHANGES_NONE} when nothing changed (the row isn't even checked to exist),
+     * {@link #CHANGES_NOT_TRACKED} when the entity isn't tracked or its primary key changed.
+     */
+    int updateChanges(SQLiteDatabase db) throws IllegalAccessException {
+        Object[] snapshot = entity != null ? EntitySnapshots.get(entity) : null;
+        int primaryIndex = mapping.indexOf(mapping.primaryFieldName);
+        if (snapshot == null || primaryIndex < 0) {
+            return CHANGES_NOT_TRACKED;
+        }
+        Object[] values = new Object[mapping.columns.length];
+        StatementCache.readValues(mapping, entity, values);
+        if (values[primaryIndex] == null || EntitySnapshots.isChanged(values[primaryIndex], snapshot[primaryIndex])) {
+            return CHANGES_NOT_TRACKED;
+        }
+        ContentValues changes = new ContentValues();
+        for (int i = 0; i < values.length; i++) {
+            if (mapping.accessors[i] != null && EntitySnapshots.isChanged(values[i], snapshot[i])) {
+                if (values[i] == null) {
+                    changes.putNull(mapping.columns[i]);
+                } else {
+                    FieldAccessor.putValue(changes, mapping.columns[i], values[i]);
+                }
+            }
+        }
+        if (changes.size() == 0) {
+            return CHANGES_NONE;
+        }
+        String primaryKey = values[primaryIndex].toString();
+        int out;
+        if (StatementCache.isUpdateDeleteSupported()) {
+            out = StatementCache.of(db).executeUpdate(mapping, changes, primaryKey);
+        } else {
+            out = db.update(mapping.name, changes, "`" + mapping.primaryFieldName + "`= ?", new String[]{primaryKey});
+        }
+        if (out > 0) {
+            EntitySnapshots.put(entity, values);
+        }
+        return out;
+    }
+
+    /**
+     * @return true if this model wraps an entity whose writes can go through the compiled statement cache.
+     */
+    boolean isStatementCacheable() {
+        return entity != null && !TextUtils.isEmpty(mapping.primaryFieldName) && StatementCache.isSupported(mapping);
+    }
+
     public static <T extends SQLiteModel> T fromJson(String json)
             throws InstantiationException, IllegalAccessException,
             JSONException {
@@ -397,7 +645,6 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
         }
     }
 
-    @SuppressWarnings("unchecked")
     public static SQLiteModel fromObject(final Object obj) throws InstantiationException,
             IllegalAccessException {
         try {
@@ -408,156 +655,45 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
         } catch (Exception e) {
             e.printStackTrace();
         }
-        Builder builder = new Builder();
-        final Class<?> cLass = obj.getClass();
-        List<String> tmp = new ArrayList<String>();
-        HashMap<String, Object> map = new HashMap<String, Object>();
-        HashMap<String, Field> nameFieldPair = new HashMap<String, Field>();
-        HashMap<String, Field> nestedTableField = new HashMap<String, Field>();
-        boolean hasColumnAnnotation = false;
-        String primaryKey = null;
-        String eligiblePrimaryName = null;
-        try {
-
-            List<Field> fields = Toolkit.getAllFieldFields(cLass, true, false);
-            for (int i = 0; i < fields.size(); i++) {
-                Field field = fields.get(i);
-                field.setAccessible(true);
-                if (!field.isAnnotationPresent(Ignore.class)) {
-                    String columnName = null;
-                    if (field.isAnnotationPresent(PrimaryKey.class) && primaryKey == null) {
-                        primaryKey = field.getName();
-                    } else if (field.getName().equalsIgnoreCase("id")) {
-                        eligiblePrimaryName = field.getName();
-                    }
-                    if (field.isAnnotationPresent(Column.class)) {
-                        Column column = field.getAnnotation(Column.class);
-                        columnName = column.name();
-                        if (!hasColumnAnnotation) {
-                            tmp.clear();
-                        }
-                        hasColumnAnnotation = true;
-                    }
-                    if (columnName == null && !hasColumnAnnotation) {
-                        columnName = field.getName();
-                    }
-                    if (columnName != null && !tmp.contains(columnName)) {
-                        tmp.add(columnName);
-                        map.put(columnName, field.get(obj));
-                        nameFieldPair.put(columnName, field);
-                        if (isNestedTableProperty(field)) {
-                            nestedTableField.put(columnName, field);
-                        }
-                    }
-                }
-            }
-
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        if (primaryKey == null) {
-            primaryKey = eligiblePrimaryName;
-        }
-        if (!tmp.contains(primaryKey) && primaryKey != null) {
-            tmp.add(primaryKey);
-        }
-        final String[] projections = tmp.toArray(new String[tmp.size()]);
-        final String primary = primaryKey;
-        //---------------------------------
-        String tableName = null;
-        if (cLass.isAnnotationPresent(Table.class)) {
-            Table table = cLass.getAnnotation(Table.class);
-            tableName = table.name();
-        }
-        if (tableName == null) {
-            tableName = cLass.getSimpleName();
-        }
-        builder.setName(tableName)
-                .setColumns(projections)
-                .setPrimaryFieldName(primary)
-                .setFieldNameValuePair(map)
-                .setNameFieldPair(nameFieldPair)
-                .setNestedTableNameFieldPair(nestedTableField)
-                .setModelClass(cLass);
-        return builder.create();
+        SQLiteModel model = fromMapping(TableMapping.of(obj.getClass()));
+        model.entity = obj;
+        return model;
     }
 
     public static SQLiteModel fromClass(final Class cLass) throws InstantiationException,
             IllegalAccessException {
-        Builder builder = new Builder();
-        List<String> projectionAdder = new ArrayList<String>();
-        HashMap<String, Field> nameFieldPair = new HashMap<String, Field>();
-        HashMap<String, Field> nestedTableField = new HashMap<String, Field>();
-        boolean hasColumnAnnotation = false;
-        String primaryKey = null;
-        String eligiblePrimaryName = null;
-        try {
-            List<Field> fields = Toolkit.getAllFieldFields(cLass, true, false);
-            for (int i = 0; i < fields.size(); i++) {
-                Field field = fields.get(i);
-                if (!field.isAnnotationPresent(Ignore.class)) {
-                    String columnName = null;
-                    if (field.isAnnotationPresent(PrimaryKey.class) && primaryKey == null) {
-                        primaryKey = field.getName();
-                    } else if (field.getName().equalsIgnoreCase("id")) {
-                        eligiblePrimaryName = field.getName();
-                    }
-                    if (field.isAnnotationPresent(Column.class)) {
-                        Annotation columnAnnotation = field.getAnnotation(Column.class);
-                        Column column = (Column) columnAnnotation;
-                        columnName = column.name();
-                        if (!hasColumnAnnotation) {
-                            projectionAdder.clear();
-                        }
-                        hasColumnAnnotation = true;
-                    }
-                    if (columnName == null && !hasColumnAnnotation) {
-                        columnName = field.getName();
-                    }
-                    if (columnName != null && !projectionAdder.contains(columnName)) {
-                        projectionAdder.add(columnName);
-                        nameFieldPair.put(columnName, field);
-                        if (isNestedTableProperty(field)) {
-                            nestedTableField.put(columnName, field);
-                        }
-                    }
-                }
+        return fromMapping(TableMapping.of(cLass));
+    }
+
+    static SQLiteModel fromMapping(final TableMapping mapping) {
+        SQLiteModel model = new SQLiteModel() {
+            @Override
+            public String getName() {
+                return mapping.name;
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        if (primaryKey == null) {
-            primaryKey = eligiblePrimaryName;
-        }
-        if (!projectionAdder.contains(primaryKey) && primaryKey != null) {
-            projectionAdder.add(primaryKey);
-        }
-        final String[] projections = projectionAdder.toArray(new String[projectionAdder.size()]);
-        final String primary = primaryKey;
-        //--------------------------------------------------
-        String tableName = null;
-        if (cLass.isAnnotationPresent(Table.class)) {
-            Table table = (Table) cLass.getAnnotation(Table.class);
-            tableName = table.name();
-        }
-        if (tableName == null) {
-            tableName = cLass.getSimpleName();
-        }
-        builder.setName(tableName)
-                .setColumns(projections)
-                .setPrimaryFieldName(primary)
-                .setNameFieldPair(nameFieldPair)
-                .setNestedTableNameFieldPair(nestedTableField)
-                .setModelClass(cLass);
-        return builder.create();
+
+            @Override
+            public String[] getColumns() {
+                return mapping.columns.clone();
+            }
+
+            @Override
+            public String getPrimaryFieldName() {
+                return mapping.primaryFieldName;
+            }
+        };
+        model.mapping = mapping;
+        model.nameFieldPair = mapping.nameFieldPair;
+        model.nestedTableFieldPair = mapping.nestedTableFieldPair;
+        model.modelClass = mapping.modelClass;
+        return model;
     }
 
     private void persistEmbeddedDbEntity(SQLiteDatabase db) {
         try {
-            Iterator<String> keySet = fieldNameValuePair.keySet().iterator();
-            while (keySet.hasNext()) {
-                String tmp = keySet.next();
-                Object obj = fieldNameValuePair.get(tmp);
+            Iterator<Object> values = toHashMap().values().iterator();
+            while (values.hasNext()) {
+                Object obj = values.next();
                 if (obj != null && obj instanceof QueryAble) {
                     onPersistEmbeddedDbEntity(db, ((QueryAble) obj));
                 }
@@ -664,56 +800,49 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
 
     public <T> T asClass(Class<T> clazz) throws IllegalAccessException, InstantiationException {
         T instance = clazz.newInstance();
-        List<Field> fields = Toolkit.getAllFieldFields(clazz, true, false);
-        for (Field field : fields) {
-            if (!field.isAnnotationPresent(Ignore.class)) {
-                try {
-                    field.setAccessible(true);
-                    if (field.getType().isAssignableFrom(CharSequence.class) || field.getType().isAssignableFrom(String.class)) {
-                        field.set(instance, getString(field.getName()));
-                    } else if (field.getType().isAssignableFrom(Double.class) || field.getType().isAssignableFrom(double.class)) {
-                        field.set(instance, getDouble(field.getName()));
-                    } else if (field.getType().isAssignableFrom(Float.class) || field.getType().isAssignableFrom(float.class)) {
-                        field.set(instance, getFloat(field.getName()));
-                    } else if (field.getType().isAssignableFrom(Long.class) || field.getType().isAssignableFrom(long.class)) {
-                        field.set(instance, getLong(field.getName()));
-                    } else if (field.getType().isAssignableFrom(Boolean.class) || field.getType().isAssignableFrom(boolean.class)) {
-                        field.set(instance, getBoolean(field.getName()));
-                    } else if (field.getType().isAssignableFrom(Integer.class) || field.getType().isAssignableFrom(int.class)) {
-                        field.set(instance, getInteger(field.getName()));
-                    } else {
-                        Gson gson = new Gson();
-                        Type type;
-                        try {
-                            type = field.getGenericType();
-                            Log.d("asClass", "onTRY=" + type);
-                        } catch (Exception e) {
-                            type = field.getType();
+        for (FieldAccessor accessor : TableMapping.of(clazz).fieldAccessors) {
+            String name = accessor.name;
+            try {
+                switch (accessor.type) {
+                    case FieldAccessor.TYPE_STRING:
+                        accessor.set(instance, getString(name));
+                        break;
+                    case FieldAccessor.TYPE_DOUBLE:
+                        accessor.setDouble(instance, getDouble(name));
+                        break;
+                    case FieldAccessor.TYPE_FLOAT:
+                        accessor.setFloat(instance, getFloat(name));
+                        break;
+                    case FieldAccessor.TYPE_LONG:
+                        accessor.setLong(instance, getLong(name));
+                        break;
+                    case FieldAccessor.TYPE_BOOLEAN:
+                        accessor.setBoolean(instance, getBoolean(name));
+                        break;
+                    case FieldAccessor.TYPE_INT:
+                    case FieldAccessor.TYPE_SHORT:
+                        accessor.setInt(instance, getInteger(name));
+                        break;
+                    case FieldAccessor.TYPE_BLOB:
+                        Object blob = get(name);
+                        if (blob instanceof byte[]) {
+                            accessor.set(instance, blob);
                         }
-                        String retrievedEntity = getString(field.getName());
-                        if (Toolkit.isJson(retrievedEntity)) {
-                            Log.d("asClass", "stringularProperty=" + retrievedEntity);
-                            if (!TextUtils.isEmpty(retrievedEntity)) {
-                                Object obj = gson.fromJson(retrievedEntity, type);
-                                field.set(instance, obj);
-                            }
+                        break;
+                    default:
+                        Object retrievedEntity = JsonAdapters.fromStoredString(getString(name), accessor.field.getGenericType());
+                        if (retrievedEntity != null) {
+                            accessor.set(instance, retrievedEntity);
                         }
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
+                        break;
                 }
+            } catch (Exception e) {
+                e.printStackTrace();
             }
         }
         return instance;
     }
 
-    private static <T> boolean isNestedTableProperty(Field field) {
-        return field.isAnnotationPresent(OneToOne.class)
-                || field.isAnnotationPresent(OneToMany.class)
-                || field.isAnnotationPresent(ManyToMany.class)
-                || field.isAnnotationPresent(ManyToOne.class);
-    }
-
     public static <T> String getFieldColumnName(Field field) {
         if (field.isAnnotationPresent(Column.class)) {
             Annotation columnAnnotation = field.getAnnotation(Column.class);
@@ -760,6 +889,13 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
         String name() default "";
 
         boolean nullable() default true;
+
+        /**
+         * a lazy column is not selected unless it is requested with {@link SQLiteSelect#fetch(String...)}.
+         * Useful for heavy JSON-backed columns. Only honored on non-primitive fields, so that an
+         * unloaded (null) value is never written back on update.
+         */
+        boolean lazy() default false;
     }
 
     @Target(ElementType.FIELD)
@@ -814,7 +950,7 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
     }
 
     protected void clear() {
-        String[] projections = getColumns();
+        String[] projections = columns();
         for (String name : projections) {
             set(name, null);
         }
@@ -901,6 +1037,9 @@ public abstract class SQLiteModel implements JSONable, QueryAble, Cloneable {
     }
 
     public int getPrimaryKeyPolicy() {
+        if (mapping != null) {
+            return mapping.primaryKeyPolicy;
+        }
         Field field = getField(getPrimaryFieldName());
         if (field != null && field.isAnnotationPresent(PrimaryKey.class)) {
             PrimaryKey primary = field.getAnnotation(PrimaryKey.class);
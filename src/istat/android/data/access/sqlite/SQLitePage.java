@@ -0,0 +1,55 @@
+package istat.android.data.access.sqlite;
+
+import java.util.List;
+
+import org.json.JSONArray;
+
+import android.util.Base64;
+
+/**
+ * a page of a keyset paginated selection, see {@link SQLiteSelect#page(int)}.
+ */
+public final class SQLitePage<T> {
+    final List<T> items;
+    final String[] lastKeyValues;
+
+    SQLitePage(List<T> items, String[] lastKeyValues) {
+        this.items = items;
+        this.lastKeyValues = lastKeyValues;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public boolean hasNext() {
+        return lastKeyValues != null;
+    }
+
+    /**
+     * @return the token to give to {@link SQLiteSelect#afterToken(String)} to select the next page, null for the last page.
+     */
+    public String getContinuationToken() {
+        if (lastKeyValues == null) {
+            return null;
+        }
+        JSONArray array = new JSONArray();
+        for (String value : lastKeyValues) {
+            array.put(value);
+        }
+        return Base64.encodeToString(array.toString().getBytes(), Base64.NO_WRAP | Base64.URL_SAFE);
+    }
+
+    static String[] parseContinuationToken(String token) {
+        try {
+            JSONArray array = new JSONArray(new String(Base64.decode(token, Base64.NO_WRAP | Base64.URL_SAFE)));
+            String[] values = new String[array.length()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = array.isNull(i) ? null : array.getString(i);
+            }
+            return values;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("invalid continuation token: " + token, e);
+        }
+    }
+}
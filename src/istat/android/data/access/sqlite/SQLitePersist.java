@@ -1,14 +1,49 @@
 package istat.android.data.access.sqlite;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 public final class SQLitePersist {
     List<QueryAble> insertions = new ArrayList<QueryAble>();
     SQLite.SQL sql;
+    BulkExecutor executor;
+    Iterator<?> source;
+    final BulkExecutor.RowWriter<QueryAble> rowWriter = new BulkExecutor.RowWriter<QueryAble>() {
+        @Override
+        public long write(QueryAble insertion) {
+            return insertion.persist(sql.db);
+        }
+    };
 
     SQLitePersist(SQLite.SQL sql) {
         this.sql = sql;
+        this.executor = new BulkExecutor(sql.db);
+    }
+
+    /**
+     * write the persistences in transactions of chunkSize rows instead of one by one.
+     *
+     * @param chunkSize rows per transaction, &lt;= 0 to disable.
+     */
+    public SQLitePersist setChunkSize(int chunkSize) {
+        executor.chunkSize = chunkSize;
+        return this;
+    }
+
+    public SQLitePersist setProgressListener(SQLite.ProgressListener listener) {
+        executor.progressListener = listener;
+        return this;
+    }
+
+    /**
+     * persist the entities of the iterator, which is consumed by {@link #execute()} one chunk at a time
+     * ({@link #setChunkSize(int)}, {@value SQLiteInsert#DEFAULT_STREAM_CHUNK_SIZE} rows by default), each chunk in its own transaction.
+     * The entities added before are persisted first. The progress listener then receives -1 as total.
+     */
+    public SQLitePersist persist(Iterator<?> source) {
+        this.source = source;
+        return this;
     }
 
     public SQLitePersist persist(Object insert) {
@@ -46,18 +81,53 @@ public final class SQLitePersist {
     }
 
     public long[] execute() {
+        if (source != null) {
+            return executeStream();
+        }
         if (insertions == null || insertions.size() == 0)
             return new long[]{0};
-        long[] out = new long[insertions.size()];
-        int index = 0;
-        for (QueryAble insertion : insertions) {
-            out[index] = insertion.persist(sql.db);
-        }
+        long[] out = executePersistences();
         insertions.clear();
         notifyExecuted();
         return out;
     }
 
+    private long[] executePersistences() {
+        try {
+            return executor.execute(insertions, rowWriter);
+        } catch (IllegalAccessException e) {
+            //persist never refuse a row.
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * convert and persist the source one chunk at a time, after the entities added before, see {@link BulkExecutor#executeStream(List, Iterator, BulkExecutor.ChunkWriter)}.
+     */
+    private long[] executeStream() {
+        Iterator<?> iterator = source;
+        source = null;
+        long[] out;
+        try {
+            out = executor.executeStream(insertions, iterator, new BulkExecutor.ChunkWriter() {
+                @Override
+                public void add(Object element) {
+                    persist(element);
+                }
+
+                @Override
+                public long[] write() {
+                    return executePersistences();
+                }
+            });
+        } catch (IllegalAccessException e) {
+            //persist never refuse a row.
+            throw new RuntimeException(e);
+        }
+        notifyExecuted();
+        return out;
+    }
+
     private void notifyExecuted() {
         if (sql.autoClose) {
             sql.close();
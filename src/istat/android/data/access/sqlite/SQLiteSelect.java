@@ -2,31 +2,126 @@ package istat.android.data.access.sqlite;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.text.TextUtils;
 
+import istat.android.data.access.sqlite.interfaces.CloseableIterator;
+
 public class SQLiteSelect extends SQLiteClause<SQLiteSelect> {
     public final static String ORDER_BY_DESC = "DESC", ORDER_BY_ASC = "ASC";
     public final static int TYPE = 0;
     Class<?> clazz;
     String selection;
     boolean distinct = false;
+    boolean trackChanges = false;
+    String[] afterKeyValues;
+    boolean projected = false;
+    int offset = 0;
+    Class<?> resultClass;
 
 
     SQLiteSelect(SQLite.SQL db, Class<?>... clazz) {
         super(clazz[0], db);
         this.clazz = clazz[0];
         this.selection = this.table;
+        this.columns = TableMapping.of(this.clazz).eagerColumns;
+        this.resultClass = this.clazz;
+    }
+
+    /**
+     * select only these columns: the other fields of the selected entities are left to their default value.
+     * Selected entities keep a snapshot of their values, as with {@link #trackChanges()}, so that updating,
+     * persisting or merging them later writes only the fields changed since, never the unselected ones.
+     *
+     * @param columns names of the columns to select.
+     * @throws IllegalArgumentException if a column is not mapped by the selected class.
+     */
+    public SQLiteSelect columns(String... columns) {
+        TableMapping mapping = TableMapping.of(clazz);
+        for (String column : columns) {
+            if (mapping.indexOf(column) < 0) {
+                throw new IllegalArgumentException(column + " is not a column of " + clazz.getName() + ".");
+            }
+        }
+        this.columns = columns;
+        this.projected = true;
+        return this;
+    }
+
+    /**
+     * execute the selection into instances of a lightweight class mapping a subset of the columns,
+     * by field name or {@link SQLiteModel.Column}. Only the columns of that class are selected,
+     * unless {@link #columns(String...)} has been called.
+     *
+     * @throws IllegalArgumentException if the projection maps none of the columns of the table.
+     */
+    public <D> List<D> executeAs(Class<D> projection) {
+        project(projection);
+        return execute();
+    }
+
+    /**
+     * iterate over the selection, hydrated into instances of projection, see {@link #executeAs(Class)} and {@link #iterate()}.
+     */
+    public <D> CloseableIterator<D> iterateAs(Class<D> projection) {
+        project(projection);
+        return iterate();
+    }
+
+    private void project(Class<?> projection) {
+        resultClass = projection;
+        if (!projected) {
+            TableMapping mapping = TableMapping.of(clazz);
+            List<String> selected = new ArrayList<String>();
+            for (String column : TableMapping.of(projection).columns) {
+                if (mapping.indexOf(column) >= 0) {
+                    selected.add(column);
+                }
+            }
+            if (selected.isEmpty()) {
+                throw new IllegalArgumentException(projection.getName() + " maps no column of " + clazz.getName() + ".");
+            }
+            columns(selected.toArray(new String[selected.size()]));
+        }
+    }
+
+    /**
+     * add lazy columns to the selection, they are skipped by default.
+     *
+     * @param columns names of the columns to select.
+     */
+    public SQLiteSelect fetch(String... columns) {
+        List<String> selected = new ArrayList<String>(Arrays.asList(this.columns));
+        for (String column : columns) {
+            if (!selected.contains(column)) {
+                selected.add(column);
+            }
+        }
+        this.columns = selected.toArray(new String[selected.size()]);
+        return this;
+    }
+
+    /**
+     * keep a snapshot of each selected entity, so that updating, persisting or merging it later
+     * writes only the columns which changed, and nothing when none did.
+     */
+    public SQLiteSelect trackChanges() {
+        this.trackChanges = true;
+        return this;
     }
 
     public SQLiteJoinSelect joinOn(Class<?> clazz, String on) {
         String join;
         try {
-            QueryAble entity = createQueryAble(clazz);
-            join = entity.getName();
+            join = TableMapping.of(clazz).getName();
             selection += " INNER JOIN " + join;
             if (!TextUtils.isEmpty(on)) {
                 selection += " ON (" + on + ") ";
@@ -60,42 +155,338 @@ public class SQLiteSelect extends SQLiteClause<SQLiteSelect> {
         return this;
     }
 
-    private QueryAble createQueryAble(Class<?> clazz) throws IllegalAccessException, InstantiationException {
-        //TODO make it better
-        return SQLiteModel.fromClass(clazz);
-    }
-
     @Override
     protected Cursor onExecute(SQLiteDatabase db) {
+        return db.query(distinct, selection, getQualifiedColumns(), getWhereClause(), getWhereParams(),
+                getGroupBy(), getHaving(), getOrderBy(), getLimit());
+    }
+
+    private String[] getQualifiedColumns() {
         String[] smartColumns = new String[columns.length];
         String tableName = table;
         for (int i = 0; i < columns.length; i++) {
             smartColumns[i] = tableName + "." + columns[i];
         }
-        return db.query(distinct, selection, smartColumns, getWhereClause(), getWhereParams(),
-                getGroupBy(), getHaving(), getOrderBy(), getLimit());
+        return smartColumns;
     }
 
 
+    /**
+     * @return count of selected rows, computed by SQLite with SELECT COUNT(*) without reading them.
+     */
     public int count() {
-        Cursor c = onExecute(sql.db);
-        int count = c.getCount();
-        c.close();
-        notifyExecuted();
-        return count;
+        return (int) queryForLong("COUNT(*)");
+    }
 
+    /**
+     * @return count of distinct non null values of the column among the selected rows.
+     */
+    public int countDistinct(String column) {
+        return (int) queryForLong("COUNT(DISTINCT " + aggregateColumn(column) + ")");
+    }
+
+    /**
+     * @return sum of the integer column over the selected rows, 0 when there is none.
+     * Decimal values are truncated, see {@link #sumAsDouble(String)}.
+     */
+    public long sum(String column) {
+        return queryForLong("SUM(" + aggregateColumn(column) + ")");
+    }
+
+    /**
+     * @return sum of the numeric column over the selected rows, 0 when there is none.
+     */
+    public double sumAsDouble(String column) {
+        return queryForDouble("SUM(" + aggregateColumn(column) + ")");
+    }
+
+    /**
+     * @return average of the column over the selected rows, 0 when there is none.
+     */
+    public double avg(String column) {
+        return queryForDouble("AVG(" + aggregateColumn(column) + ")");
+    }
+
+    /**
+     * @return smallest value of the integer column among the selected rows, 0 when there is none.
+     * Decimal values are truncated, see {@link #minAsDouble(String)}.
+     */
+    public long min(String column) {
+        return queryForLong("MIN(" + aggregateColumn(column) + ")");
+    }
+
+    /**
+     * @return smallest value of the numeric column among the selected rows, 0 when there is none.
+     */
+    public double minAsDouble(String column) {
+        return queryForDouble("MIN(" + aggregateColumn(column) + ")");
+    }
+
+    /**
+     * @return greatest value of the integer column among the selected rows, 0 when there is none.
+     * Decimal values are truncated, see {@link #maxAsDouble(String)}.
+     */
+    public long max(String column) {
+        return queryForLong("MAX(" + aggregateColumn(column) + ")");
+    }
+
+    /**
+     * @return greatest value of the numeric column among the selected rows, 0 when there is none.
+     */
+    public double maxAsDouble(String column) {
+        return queryForDouble("MAX(" + aggregateColumn(column) + ")");
+    }
+
+    private long queryForLong(String expression) {
+        SQLiteStatement statement = compileAggregateQuery(buildAggregateQuery(expression));
+        try {
+            return statement.simpleQueryForLong();
+        } finally {
+            statement.close();
+            notifyExecuted();
+        }
+    }
+
+    private double queryForDouble(String expression) {
+        SQLiteStatement statement = compileAggregateQuery(buildAggregateQuery(expression));
+        try {
+            String out = statement.simpleQueryForString();
+            return out != null ? Double.parseDouble(out) : 0;
+        } finally {
+            statement.close();
+            notifyExecuted();
+        }
+    }
+
+    /**
+     * compile an aggregate query, bound with the where params. Aggregate queries are built from the clauses of each
+     * selection, so they are compiled for a single use instead of taking the place of cached write statements.
+     */
+    private SQLiteStatement compileAggregateQuery(String query) {
+        SQLiteStatement statement = sql.db.compileStatement(query);
+        StatementCache.bindStrings(statement, getWhereParams());
+        return statement;
+    }
+
+    /**
+     * @return the column as named by {@link #buildAggregateQuery(String)}.
+     */
+    private String aggregateColumn(String column) {
+        if (isAggregatedOverSubQuery()) {
+            return column.substring(column.lastIndexOf('.') + 1);
+        }
+        return buildWhereParam(column);
+    }
+
+    private boolean isAggregatedOverSubQuery() {
+        return distinct || !TextUtils.isEmpty(getGroupBy()) || limit >= 0;
+    }
+
+    /**
+     * @return SELECT expression on the rows of this selection: directly on its tables and where clause,
+     * or over the selection as a sub query when it is distinct, grouped or limited.
+     */
+    String buildAggregateQuery(String expression) {
+        if (isAggregatedOverSubQuery()) {
+            return "SELECT " + expression + " FROM (" + SQLiteQueryBuilder.buildQueryString(distinct, selection, getQualifiedColumns(),
+                    getWhereClause(), getGroupBy(), getHaving(), getOrderBy(), getLimit()) + ")";
+        }
+        String whereClause = getWhereClause();
+        return "SELECT " + expression + " FROM " + selection + (TextUtils.isEmpty(whereClause) ? "" : " WHERE " + whereClause);
+    }
+
+    /**
+     * @return true if the selection has at least one row, checked with SELECT EXISTS(...) without reading any.
+     */
+    public boolean exists() {
+        SQLiteStatement statement = compileAggregateQuery("SELECT EXISTS(" + buildAggregateQuery("1") + ")");
+        try {
+            return statement.simpleQueryForLong() != 0;
+        } finally {
+            statement.close();
+            notifyExecuted();
+        }
     }
 
+    /**
+     * @return the last row following the ORDER BY reversed, or the row having the greatest primary key
+     * (the greatest rowid of the table if it has none) when there is no ORDER BY; null if there is none.
+     * Views and WITHOUT ROWID tables mapped without primary key need an explicit ORDER BY.
+     * The selection is left as it was, it can be executed again.
+     */
     public <T> T findLast() {
-        return findAtIndex(0);
+        String initialOrderBy = orderBy;
+        List<String> initialSortColumns = new ArrayList<String>(sortColumns);
+        List<Boolean> initialSortDescending = new ArrayList<Boolean>(sortDescending);
+        orderBy = null;
+        sortColumns.clear();
+        sortDescending.clear();
+        try {
+            if (initialSortColumns.isEmpty()) {
+                String primaryKey = TableMapping.of(clazz).primaryFieldName;
+                //qualified with the table name, so that it is not ambiguous in a join.
+                orderBy(TextUtils.isEmpty(primaryKey) ? "rowid" : primaryKey, ORDER_BY_DESC);
+            } else {
+                for (int i = 0; i < initialSortColumns.size(); i++) {
+                    orderBy(initialSortColumns.get(i), initialSortDescending.get(i) ? ORDER_BY_ASC : ORDER_BY_DESC);
+                }
+            }
+            return findAtIndex(0);
+        } finally {
+            orderBy = initialOrderBy;
+            sortColumns.clear();
+            sortColumns.addAll(initialSortColumns);
+            sortDescending.clear();
+            sortDescending.addAll(initialSortDescending);
+        }
     }
 
     public <T> T findFirst() {
         return findAtIndex(0);
     }
 
+    /**
+     * @return the row at the index of the selection, read alone with LIMIT 1 OFFSET index; null if there is none.
+     * The selection is left as it was, it can be executed again.
+     */
     public <T> T findAtIndex(int index) {
-        return null;
+        if (limit >= 0 && index >= limit) {
+            notifyExecuted();
+            return null;
+        }
+        int initialLimit = limit, initialOffset = offset;
+        this.limit = 1;
+        this.offset = index;
+        try {
+            List<T> list = execute();
+            return list.isEmpty() ? null : list.get(0);
+        } finally {
+            limit = initialLimit;
+            offset = initialOffset;
+        }
+    }
+
+    @Override
+    protected String getLimit() {
+        if (offset > 0 && limit >= 0) {
+            return offset + "," + limit;
+        }
+        return super.getLimit();
+    }
+
+    /**
+     * start the next {@link #page(int)} right after the row having these values for the ORDER BY columns,
+     * followed by its primary key when it is not one of them.
+     */
+    public SQLiteSelect after(Object... lastKeyValues) {
+        afterKeyValues = new String[lastKeyValues.length];
+        for (int i = 0; i < lastKeyValues.length; i++) {
+            afterKeyValues[i] = lastKeyValues[i] != null ? lastKeyValues[i].toString() : null;
+        }
+        return this;
+    }
+
+    /**
+     * start the next {@link #page(int)} right after the last row of the page which returned the token.
+     */
+    public SQLiteSelect afterToken(String continuationToken) {
+        if (!TextUtils.isEmpty(continuationToken)) {
+            afterKeyValues = SQLitePage.parseContinuationToken(continuationToken);
+        }
+        return this;
+    }
+
+    /**
+     * select at most size rows following the ORDER BY columns, ended by the primary key so that the order is total,
+     * seeking past the {@link #after(Object...)} row with WHERE k1 &gt; ? OR (k1 = ? AND k2 &gt; ?) ...
+     * instead of skipping the previous pages with an OFFSET: each page costs the same, whatever its position.
+     * Sort columns have to be columns of the selected class, and not null.
+     * The keyset predicate, the primary key ORDER BY and the LIMIT only apply to this page:
+     * the selection is left as it was, ready for the next {@link #afterToken(String)} and page.
+     */
+    public <T> SQLitePage<T> page(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("page size has to be positive: " + size);
+        }
+        String initialWhereClause = whereClause, initialOrderBy = orderBy;
+        int initialWhereParamCount = whereParams.size(), initialSortCount = sortColumns.size(), initialLimit = limit;
+        try {
+            return executePage(size);
+        } finally {
+            whereClause = initialWhereClause;
+            whereParams.subList(initialWhereParamCount, whereParams.size()).clear();
+            orderBy = initialOrderBy;
+            sortColumns.subList(initialSortCount, sortColumns.size()).clear();
+            sortDescending.subList(initialSortCount, sortDescending.size()).clear();
+            limit = initialLimit;
+        }
+    }
+
+    private <T> SQLitePage<T> executePage(int size) {
+        TableMapping mapping = TableMapping.of(clazz);
+        List<String> keyColumns = new ArrayList<String>(sortColumns);
+        List<Boolean> keyDescending = new ArrayList<Boolean>(sortDescending);
+        if (!TextUtils.isEmpty(mapping.primaryFieldName)) {
+            String primaryColumn = buildWhereParam(mapping.primaryFieldName);
+            if (!keyColumns.contains(primaryColumn)) {
+                boolean descending = !keyDescending.isEmpty() && keyDescending.get(keyDescending.size() - 1);
+                orderBy(mapping.primaryFieldName, descending ? ORDER_BY_DESC : ORDER_BY_ASC);
+                keyColumns.add(primaryColumn);
+                keyDescending.add(descending);
+            }
+        }
+        FieldAccessor[] keyAccessors = new FieldAccessor[keyColumns.size()];
+        for (int i = 0; i < keyAccessors.length; i++) {
+            String column = keyColumns.get(i);
+            keyAccessors[i] = mapping.getAccessor(column.substring(column.lastIndexOf('.') + 1));
+            if (keyAccessors[i] == null) {
+                throw new IllegalArgumentException(column + " is not a column of " + clazz.getName() + ", it can't be used as page key.");
+            }
+        }
+        if (afterKeyValues != null) {
+            if (afterKeyValues.length != keyColumns.size()) {
+                throw new IllegalArgumentException("expected " + keyColumns.size() + " key values " + keyColumns + ", got " + afterKeyValues.length);
+            }
+            StringBuilder predicate = new StringBuilder();
+            for (int i = 0; i < keyColumns.size(); i++) {
+                if (i > 0) {
+                    predicate.append(" OR ");
+                }
+                predicate.append('(');
+                for (int j = 0; j < i; j++) {
+                    predicate.append(keyColumns.get(j)).append(" = ? AND ");
+                    whereParams.add(afterKeyValues[j]);
+                }
+                predicate.append(keyColumns.get(i)).append(keyDescending.get(i) ? " < ?" : " > ?").append(')');
+                whereParams.add(afterKeyValues[i]);
+            }
+            whereClause = (TextUtils.isEmpty(whereClause) ? "" : "(" + whereClause + ") AND ") + "(" + predicate + ")";
+        }
+        //one more row tells if there is a next page.
+        List<T> items = execute(size + 1);
+        String[] lastKeyValues = null;
+        if (items.size() > size) {
+            items.remove(size);
+            Object last = items.get(size - 1);
+            lastKeyValues = new String[keyAccessors.length];
+            try {
+                for (int i = 0; i < keyAccessors.length; i++) {
+                    Object value = keyAccessors[i].getStoredValue(last);
+                    lastKeyValues[i] = value != null ? value.toString() : null;
+                }
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return new SQLitePage<T>(items, lastKeyValues);
+    }
+
+    /**
+     * select at most limit rows, all of them when limit &lt; 0.
+     */
+    public SQLiteSelect limit(int limit) {
+        this.limit = limit;
+        return this;
     }
 
     public <T> List<T> execute(int limit) {
@@ -116,7 +507,7 @@ public class SQLiteSelect extends SQLiteClause<SQLiteSelect> {
     }
 
     public <T> T executeForFirst() {
-        return null;
+        return findAtIndex(0);
     }
 
     @SuppressWarnings("unchecked")
@@ -126,13 +517,15 @@ public class SQLiteSelect extends SQLiteClause<SQLiteSelect> {
         }
         try {
             Cursor c = onExecute(sql.db);
-            if (c.getCount() > 0) {
+            try {
+                CursorPlan plan = new CursorPlan(c);
                 while (c.moveToNext()) {
-                    T model = (T) createObjectFromCursor(clazz, c);
+                    T model = (T) createObjectFromCursor(resultClass, plan);
                     list.add(model);
                 }
+            } finally {
+                c.close();
             }
-            c.close();
             notifyExecutionSucced(TYPE, this, list);
         } catch (Exception e) {
             e.printStackTrace();
@@ -142,19 +535,133 @@ public class SQLiteSelect extends SQLiteClause<SQLiteSelect> {
     }
 
     /**
-     * Create A T instance and fill them from cursor.
+     * execute the selection and hydrate the rows one at a time, as the returned iterator advances,
+     * instead of reading the whole result into a list. The iterator closes the cursor once it reaches the end;
+     * close it yourself when stopping before.
+     */
+    public <T> CloseableIterator<T> iterate() {
+        Cursor c = null;
+        try {
+            c = onExecute(sql.db);
+            return new RowIterator<T>(c);
+        } catch (RuntimeException e) {
+            if (c != null) {
+                c.close();
+            }
+            notifyExecuted();
+            throw e;
+        }
+    }
+
+    /**
+     * execute the selection and hand each row to the callback as soon as it is hydrated, without keeping it.
+     *
+     * @return count of rows handed to the callback.
+     */
+    public <T> int forEach(RowCallback<T> callback) {
+        CloseableIterator<T> iterator = iterate();
+        int count = 0;
+        try {
+            while (iterator.hasNext()) {
+                count++;
+                if (!callback.onRow(iterator.next())) {
+                    break;
+                }
+            }
+        } finally {
+            //closing notifies the execution, whether the callback returned or threw.
+            iterator.close();
+        }
+        return count;
+    }
+
+    public interface RowCallback<T> {
+        /**
+         * @return false to stop the iteration.
+         */
+        boolean onRow(T row);
+    }
+
+    final class RowIterator<T> implements CloseableIterator<T> {
+        final Cursor cursor;
+        final CursorPlan plan;
+        boolean moved = false, hasNext = false, closed = false;
+
+        RowIterator(Cursor cursor) {
+            this.cursor = cursor;
+            this.plan = new CursorPlan(cursor);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (closed) {
+                return false;
+            }
+            if (!moved) {
+                hasNext = cursor.moveToNext();
+                moved = true;
+                if (!hasNext) {
+                    close();
+                }
+            }
+            return hasNext;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            moved = false;
+            try {
+                return (T) createObjectFromCursor(resultClass, plan);
+            } catch (Exception e) {
+                close();
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                try {
+                    cursor.close();
+                } finally {
+                    notifyExecuted();
+                }
+            }
+        }
+    }
+
+    /**
+     * Create A T instance and fill it directly from cursor.
      *
      * @param clazz
-     * @param c
+     * @param plan column indexes of the cursor, resolved once per result set.
      * @param <T>
      * @return
      */
-    private <T> T createObjectFromCursor(Class<T> clazz, Cursor c) throws InstantiationException, IllegalAccessException {
-        //TODO make it better
-        SQLiteModel model = SQLiteModel.fromClass(clazz);
-        model.fillFromCursor(c);
-        T obj = model.asClass(clazz);
-        return obj;
+    @SuppressWarnings("unchecked")
+    private <T> T createObjectFromCursor(Class<T> clazz, CursorPlan plan) throws InstantiationException, IllegalAccessException {
+        TableMapping mapping = TableMapping.of(clazz);
+        Object entity = mapping.createFromCursor(plan.cursor, plan.getColumnIndexes(mapping));
+        //a partially selected entity is tracked, so that its unselected fields are never written back.
+        if ((trackChanges || projected) && clazz == this.clazz) {
+            EntitySnapshots.take(mapping, entity);
+        }
+        return (T) entity;
     }
 
     //TODO check if 'selection' or 'table'
@@ -290,8 +797,7 @@ public class SQLiteSelect extends SQLiteClause<SQLiteSelect> {
 
         public ClauseSubJoinBuilder on(Class<?> clazz, String name) {
             try {
-                SQLiteModel model = SQLiteModel.fromClass(clazz);
-                name = buildWhereParam(model.getName(), name);
+                name = buildWhereParam(TableMapping.of(clazz).getName(), name);
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -301,14 +807,14 @@ public class SQLiteSelect extends SQLiteClause<SQLiteSelect> {
         private SQLiteJoinSelect buildSubJoin() throws IllegalAccessException, InstantiationException {
             Class<?> selectionClass = joinSelect.clazz;
             Class<?> joinClass = this.clazz;
-            SQLiteModel selectionModel = SQLiteModel.fromClass(selectionClass);
-            SQLiteModel joinModel = SQLiteModel.fromClass(selectionClass);
-            Field[] fields = selectionModel.getNestedTableFields();
-            String nestedPrimaryKey = joinModel.getPrimaryFieldName();
-            String foreignKey = selectionModel.getPrimaryFieldName();
+            TableMapping selectionMapping = TableMapping.of(selectionClass);
+            TableMapping joinMapping = TableMapping.of(joinClass);
+            Field[] fields = selectionMapping.getNestedTableFields();
+            String nestedPrimaryKey = joinMapping.getPrimaryFieldName();
+            String foreignKey = selectionMapping.getPrimaryFieldName();
             for (Field field : fields) {
                 if (field.getType().isAssignableFrom(joinClass)) {
-                    foreignKey = selectionModel.getFieldNestedMappingName(field);
+                    foreignKey = SQLiteModel.getFieldNestedMappingName(field);
                 }
             }
             return on(selectionClass, foreignKey).equalTo(joinClass, nestedPrimaryKey);
@@ -324,11 +830,11 @@ public class SQLiteSelect extends SQLiteClause<SQLiteSelect> {
 
         private ClauseJoinSelectBuilder defaultWhere(Class<?> clazz, String column) {
             try {
-                SQLiteModel model = SQLiteModel.fromClass(clazz);
+                String tableName = TableMapping.of(clazz).getName();
                 if (whereClause == null)
-                    whereClause = buildWhereParam(model.getName(), column);
+                    whereClause = buildWhereParam(tableName, column);
                 else
-                    whereClause += " AND " + buildWhereParam(model.getName(), column);
+                    whereClause += " AND " + buildWhereParam(tableName, column);
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -393,8 +899,7 @@ public class SQLiteSelect extends SQLiteClause<SQLiteSelect> {
 
         public SQLiteJoinSelect equalTo(Class<?> clazz, String name) {
             try {
-                SQLiteModel model = SQLiteModel.fromClass(clazz);
-                name = buildWhereParam(model.getName(), name);
+                name = buildWhereParam(TableMapping.of(clazz).getName(), name);
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -412,15 +917,18 @@ public class SQLiteSelect extends SQLiteClause<SQLiteSelect> {
             this.whereParams = SQLiteSelect.this.whereParams;
             this.selection = SQLiteSelect.this.selection;
             this.table = SQLiteSelect.this.table;
+            this.columns = SQLiteSelect.this.columns;
+            this.trackChanges = SQLiteSelect.this.trackChanges;
+            this.projected = SQLiteSelect.this.projected;
         }
 
         public ClauseJoinSelectBuilder where(Class<?> clazz, String column) {
             try {
-                SQLiteModel model = SQLiteModel.fromClass(clazz);
+                String tableName = TableMapping.of(clazz).getName();
                 if (whereClause == null)
-                    whereClause = buildWhereParam(model.getName(), column);
+                    whereClause = buildWhereParam(tableName, column);
                 else
-                    whereClause += " AND " + buildWhereParam(model.getName(), column);
+                    whereClause += " AND " + buildWhereParam(tableName, column);
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -429,11 +937,11 @@ public class SQLiteSelect extends SQLiteClause<SQLiteSelect> {
 
         public ClauseJoinSelectBuilder or(Class<?> clazz, String column) {
             try {
-                SQLiteModel model = SQLiteModel.fromClass(clazz);
+                String tableName = TableMapping.of(clazz).getName();
                 if (whereClause == null)
-                    whereClause = buildWhereParam(model.getName(), column);
+                    whereClause = buildWhereParam(tableName, column);
                 else
-                    whereClause += " OR " + buildWhereParam(model.getName(), column);
+                    whereClause += " OR " + buildWhereParam(tableName, column);
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -442,11 +950,11 @@ public class SQLiteSelect extends SQLiteClause<SQLiteSelect> {
 
         public ClauseJoinSelectBuilder and(Class<?> clazz, String column) {
             try {
-                SQLiteModel model = SQLiteModel.fromClass(clazz);
+                String tableName = TableMapping.of(clazz).getName();
                 if (whereClause == null)
-                    whereClause = buildWhereParam(model.getName(), column);
+                    whereClause = buildWhereParam(tableName, column);
                 else
-                    whereClause += " AND " + buildWhereParam(model.getName(), column);
+                    whereClause += " AND " + buildWhereParam(tableName, column);
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -484,8 +992,7 @@ public class SQLiteSelect extends SQLiteClause<SQLiteSelect> {
     public ClauseJoinBuilder join(Class<?> clazz, String joinType) {
         String join;
         try {
-            QueryAble entity = createQueryAble(clazz);
-            join = entity.getName();
+            join = TableMapping.of(clazz).getName();
             selection += joinType + "JOIN " + join;
 //            if (!TextUtils.isEmpty(on)) {
 //                selection += " ON (" + on + ") ";
@@ -1,13 +1,95 @@
 package istat.android.data.access.sqlite;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import android.content.ContentValues;
 import android.database.sqlite.SQLiteDatabase;
 
 public final class SQLiteUpdate {
     Updater updater;
+    Class<?> clazz;
 
     SQLiteUpdate(Class<?> clazz, SQLite.SQL sql) {
+        this.clazz = clazz;
         updater = new Updater(clazz, sql);
     }
+
+    /**
+     * update each entity on its primary key, in a single transaction, binding its non null
+     * columns into a compiled UPDATE ... WHERE pk=? shared by every entity with the same columns.
+     * Entities selected with {@link SQLiteSelect#trackChanges()} only write their changed columns.
+     *
+     * @return count of updated rows, for each entity.
+     */
+    public int[] updateAll(List<?> entities) {
+        int[] out = new int[entities.size()];
+        SQLiteDatabase db = updater.sql.db;
+        NestedTransaction transaction = NestedTransaction.begin(db);
+        try {
+            for (int i = 0; i < out.length; i++) {
+                Object entity = entities.get(i);
+                SQLiteModel model = SQLiteModel.fromObject(entity);
+                out[i] = model.updateChanges(db);
+                if (out[i] == SQLiteModel.CHANGES_NONE) {
+                    out[i] = 0;
+                    continue;
+                } else if (out[i] >= 0) {
+                    continue;
+                }
+                if (model.isStatementCacheable() && StatementCache.isUpdateDeleteSupported()) {
+                    out[i] = StatementCache.of(db).executeUpdate(model.mapping, entity, model.getPrimaryKey());
+                } else {
+                    out[i] = model.update(db, model.getPrimaryFieldName() + "= ?", new String[]{model.getPrimaryKey()});
+                }
+            }
+            transaction.setSuccessful();
+        } catch (Exception e) {
+            e.printStackTrace();
+            //the transaction is rolled back, nothing has been updated.
+            Arrays.fill(out, 0);
+        } finally {
+            transaction.end();
+        }
+        updater.notifyExecuted();
+        return out;
+    }
+
+    /**
+     * update, in a single transaction, the rows of the given primary keys with their values.
+     * Rows with the same columns share one compiled UPDATE ... WHERE pk=?.
+     *
+     * @param primaryKeyValuesPair the columns to update, for each primary key.
+     * @return count of updated rows, for each primary key in the iteration order of the map.
+     */
+    public int[] updateAll(Map<?, ContentValues> primaryKeyValuesPair) {
+        TableMapping mapping = TableMapping.of(clazz);
+        int[] out = new int[primaryKeyValuesPair.size()];
+        SQLiteDatabase db = updater.sql.db;
+        NestedTransaction transaction = NestedTransaction.begin(db);
+        try {
+            int index = 0;
+            for (Map.Entry<?, ContentValues> entry : primaryKeyValuesPair.entrySet()) {
+                String primaryKey = String.valueOf(entry.getKey());
+                if (StatementCache.isUpdateDeleteSupported()) {
+                    out[index] = StatementCache.of(db).executeUpdate(mapping, entry.getValue(), primaryKey);
+                } else {
+                    out[index] = db.update(mapping.name, entry.getValue(), mapping.primaryFieldName + "= ?", new String[]{primaryKey});
+                }
+                index++;
+            }
+            transaction.setSuccessful();
+        } catch (Exception e) {
+            e.printStackTrace();
+            //the transaction is rolled back, nothing has been updated.
+            Arrays.fill(out, 0);
+        } finally {
+            transaction.end();
+        }
+        updater.notifyExecuted();
+        return out;
+    }
 //
 //    SQLiteUpdate(String table, SQLiteDatabase db) {
 //        updater = new Updater(table, db);
@@ -17,7 +99,9 @@ public final class SQLiteUpdate {
         String tbName = entity.getClass().getName();
         try {
             SQLiteModel model = SQLiteModel.fromObject(entity);
-            updater.model.fieldNameValuePair.putAll(model.fieldNameValuePair);
+            for (String column : model.getColumns()) {
+                updater.model.set(column, model.get(column));
+            }
             tbName = model.getName();
         } catch (Exception e) {
             e.printStackTrace();
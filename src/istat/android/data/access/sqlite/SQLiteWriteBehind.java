@@ -0,0 +1,308 @@
+package istat.android.data.access.sqlite;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteDatabase;
+import android.text.TextUtils;
+import android.util.Log;
+
+/**
+ * buffer of persists, inserts and deletes written in the background by group commit:
+ * pending writes are flushed in a single transaction once maxPendingWrites are queued
+ * or maxDelayMillis after the first of them, whichever comes first.
+ * Writes to the same primary key of the same class are coalesced, only the last one is executed.
+ * <p>
+ * Entities are read when they are flushed, not when they are queued.
+ * Use {@link #awaitFlushed()} where the writes have to be durable.
+ * The writes of a flush which fails are queued again, to be retried by the next flush,
+ * unless they are superseded meanwhile; {@link #clearPending()} gives them back instead.
+ * <p>
+ * Writes go through the database of the connection as registered with {@link SQLite}, they share its open helper.
+ */
+public final class SQLiteWriteBehind {
+    public final static int DEFAULT_MAX_PENDING_WRITES = 500;
+    public final static long DEFAULT_MAX_DELAY_MILLIS = 1000;
+    /**
+     * time given by {@link #close()} to the background thread to stop once the last flush is done.
+     */
+    public final static long CLOSE_TIMEOUT_MILLIS = 10000;
+    final static int OPERATION_PERSIST = 0, OPERATION_INSERT = 1, OPERATION_DELETE = 2;
+    final SQLite.SQLiteConnection connection;
+    final int maxPendingWrites;
+    final long maxDelayMillis;
+    final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    final LinkedHashMap<Object, PendingWrite> pending = new LinkedHashMap<Object, PendingWrite>();
+    ScheduledFuture<?> scheduledFlush;
+    SQLiteDataAccess access;
+    volatile Exception lastError;
+    //written by the executor thread, volatile to be read by any other.
+    volatile boolean failed = false;
+    final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushPending();
+        }
+    };
+    final Callable<Boolean> awaitTask = new Callable<Boolean>() {
+        @Override
+        public Boolean call() throws Exception {
+            flushPending();
+            boolean out = !failed;
+            failed = false;
+            return out;
+        }
+    };
+
+    SQLiteWriteBehind(SQLite.SQLiteConnection connection, int maxPendingWrites, long maxDelayMillis) {
+        this.connection = connection;
+        this.maxPendingWrites = maxPendingWrites;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public SQLiteWriteBehind persist(Object entity) {
+        return enqueue(OPERATION_PERSIST, entity);
+    }
+
+    public SQLiteWriteBehind insert(Object entity) {
+        return enqueue(OPERATION_INSERT, entity);
+    }
+
+    public SQLiteWriteBehind delete(Object entity) {
+        return enqueue(OPERATION_DELETE, entity);
+    }
+
+    public SQLiteWriteBehind persist(List<?> entities) {
+        for (Object entity : entities) {
+            persist(entity);
+        }
+        return this;
+    }
+
+    public SQLiteWriteBehind delete(List<?> entities) {
+        for (Object entity : entities) {
+            delete(entity);
+        }
+        return this;
+    }
+
+    private SQLiteWriteBehind enqueue(int operation, Object entity) {
+        SQLiteModel model;
+        try {
+            model = SQLiteModel.fromObject(entity);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return this;
+        }
+        String primaryKey = model.getPrimaryKey();
+        //an entity without primary key yet can't be coalesced with any other write.
+        Object key = TextUtils.isEmpty(primaryKey) || "null".equals(primaryKey) ? new Object()
+                : model.getName() + ":" + primaryKey;
+        synchronized (this) {
+            if (executor.isShutdown()) {
+                throw new IllegalStateException("write-behind of " + connection.dbName + " is closed.");
+            }
+            PendingWrite previous = pending.get(key);
+            if (previous != null && operation == OPERATION_INSERT) {
+                //the row may already be written by the previous write or deleted by it, an insert would conflict.
+                operation = OPERATION_PERSIST;
+            }
+            pending.put(key, new PendingWrite(key, operation, model));
+            if (pending.size() >= maxPendingWrites) {
+                cancelScheduledFlush();
+                executor.execute(flushTask);
+            } else if (scheduledFlush == null) {
+                scheduledFlush = executor.schedule(flushTask, maxDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return count of writes queued and not yet flushed.
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * remove the writes not yet flushed, including those of failed flushes waiting to be retried.
+     *
+     * @return the entities of the removed writes, in queue order.
+     */
+    public synchronized List<Object> clearPending() {
+        cancelScheduledFlush();
+        List<Object> out = new ArrayList<Object>(pending.size());
+        for (PendingWrite write : pending.values()) {
+            out.add(write.model.entity != null ? write.model.entity : write.model);
+        }
+        pending.clear();
+        return out;
+    }
+
+    /**
+     * @return the error of the last flush which failed, null if none did.
+     */
+    public Exception getLastError() {
+        return lastError;
+    }
+
+    /**
+     * flush the pending writes in the background without waiting for the threshold.
+     */
+    public Future<Boolean> flush() {
+        synchronized (this) {
+            cancelScheduledFlush();
+        }
+        return executor.submit(awaitTask);
+    }
+
+    /**
+     * flush the pending writes and block until they and every previously queued write are committed.
+     *
+     * @return true if every flush since the last call committed all its writes, false otherwise (see {@link #getLastError()}).
+     */
+    public boolean awaitFlushed() throws InterruptedException {
+        try {
+            return flush().get();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * flush the pending writes, then stop the background thread. The database of the connection is left open.
+     * Writes still failing are dropped, see {@link #clearPending()} to get them back first.
+     *
+     * @return true if the last flush committed all its writes and the background thread stopped
+     * within {@link #CLOSE_TIMEOUT_MILLIS}, false otherwise.
+     */
+    public boolean close() throws InterruptedException {
+        boolean out = awaitFlushed();
+        synchronized (this) {
+            executor.shutdown();
+        }
+        if (!executor.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            Log.w("SQLiteWriteBehind", "write-behind of " + connection.dbName + " did not stop within " + CLOSE_TIMEOUT_MILLIS + "ms.");
+            out = false;
+        }
+        access = null;
+        synchronized (connection) {
+            if (connection.writeBehind == this) {
+                connection.writeBehind = null;
+            }
+        }
+        return out;
+    }
+
+    private void cancelScheduledFlush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+    }
+
+    private void flushPending() {
+        List<PendingWrite> writes;
+        synchronized (this) {
+            cancelScheduledFlush();
+            if (pending.isEmpty()) {
+                return;
+            }
+            writes = new ArrayList<PendingWrite>(pending.values());
+            pending.clear();
+        }
+        try {
+            SQLiteDatabase db = open();
+            NestedTransaction transaction = NestedTransaction.begin(db);
+            try {
+                for (PendingWrite write : writes) {
+                    write.execute(db);
+                }
+                transaction.setSuccessful();
+            } finally {
+                transaction.end();
+            }
+        } catch (Exception e) {
+            //the transaction is rolled back, the writes of this flush are queued again for the next one.
+            e.printStackTrace();
+            lastError = e;
+            failed = true;
+            requeue(writes);
+        }
+    }
+
+    /**
+     * put the writes of a failed flush back at the head of the queue, unless their key has been written again since.
+     */
+    private synchronized void requeue(List<PendingWrite> writes) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        LinkedHashMap<Object, PendingWrite> queued = new LinkedHashMap<Object, PendingWrite>(pending);
+        pending.clear();
+        for (PendingWrite write : writes) {
+            if (!queued.containsKey(write.key)) {
+                pending.put(write.key, write);
+            }
+        }
+        pending.putAll(queued);
+    }
+
+    /**
+     * @return the database of the connection, through the access registered for it, registering one if there is none yet.
+     */
+    private SQLiteDatabase open() {
+        if (access == null) {
+            access = SQLite.getAccess(connection.dbName);
+            if (access == null) {
+                access = SQLite.connect(connection);
+            }
+        }
+        SQLiteDatabase db = access.getDataBase();
+        return db != null && db.isOpen() ? db : access.open();
+    }
+
+    final class PendingWrite {
+        final Object key;
+        final int operation;
+        final SQLiteModel model;
+
+        PendingWrite(Object key, int operation, SQLiteModel model) {
+            this.key = key;
+            this.operation = operation;
+            this.model = model;
+        }
+
+        void execute(SQLiteDatabase db) throws IllegalAccessException {
+            switch (operation) {
+                case OPERATION_PERSIST:
+                    model.persist(db);
+                    break;
+                case OPERATION_INSERT:
+                    try {
+                        model.insert(db, SQLiteDatabase.CONFLICT_ABORT);
+                    } catch (SQLiteConstraintException e) {
+                        //a duplicate row doesn't roll back the other writes of the flush.
+                        e.printStackTrace();
+                        lastError = e;
+                        failed = true;
+                    }
+                    break;
+                case OPERATION_DELETE:
+                    model.delete(db);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package istat.android.data.access.sqlite;
+
+import java.util.HashMap;
+import java.util.List;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * replace every row of a table with a list of entities: the entities are loaded into a TEMP staging table
+ * with a single compiled INSERT, then swapped in with DELETE + INSERT ... SELECT in one short transaction.
+ * Readers never see the table empty, and the main database is only locked for the swap.
+ */
+final class StagingReload {
+
+    private StagingReload() {
+
+    }
+
+    /**
+     * @return the mapping shared by every entity when they can be reloaded through a staging table, null otherwise.
+     */
+    static TableMapping getMapping(List<?> entities) {
+        if (entities == null || entities.isEmpty() || entities.get(0) instanceof SQLiteModel) {
+            return null;
+        }
+        Class<?> cLass = entities.get(0).getClass();
+        for (Object entity : entities) {
+            if (entity == null || entity.getClass() != cLass) {
+                return null;
+            }
+        }
+        TableMapping mapping = TableMapping.of(cLass);
+        if (!mapping.nestedTableFieldPair.isEmpty()) {
+            return null;
+        }
+        for (FieldAccessor accessor : mapping.accessors) {
+            if (accessor != null && QueryAble.class.isAssignableFrom(accessor.field.getType())) {
+                return null;
+            }
+        }
+        return mapping;
+    }
+
+    /**
+     * @return count of rows of the reloaded table, as counted by changes().
+     */
+    static int execute(SQLiteDatabase db, TableMapping mapping, List<?> entities) throws IllegalAccessException {
+        String staging = "temp.`staging_" + mapping.name + "`";
+        StringBuilder columns = new StringBuilder();
+        StringBuilder args = new StringBuilder();
+        StringBuilder selection = new StringBuilder();
+        HashMap<String, String> columnDefaultPair = getColumnDefaults(db, mapping.name);
+        for (int i = 0; i < mapping.columns.length; i++) {
+            if (mapping.accessors[i] == null) {
+                continue;
+            }
+            if (args.length() > 0) {
+                columns.append(',');
+                args.append(',');
+                selection.append(',');
+            }
+            String column = "`" + mapping.columns[i] + "`";
+            columns.append(column);
+            args.append('?');
+            //a null field takes the column default, as it would with a regular insert.
+            String columnDefault = columnDefaultPair.get(mapping.columns[i]);
+            selection.append(columnDefault != null ? "COALESCE(" + column + "," + columnDefault + ")" : column);
+        }
+        db.execSQL("DROP TABLE IF EXISTS " + staging);
+        db.execSQL("CREATE TEMP TABLE " + staging + " AS SELECT " + columns + " FROM `" + mapping.name + "` WHERE 0");
+        try {
+            load(db, "INSERT INTO " + staging + " (" + columns + ") VALUES (" + args + ")", mapping, entities);
+            int out;
+            NestedTransaction transaction = NestedTransaction.begin(db);
+            try {
+                db.delete(mapping.name, null, null);
+                db.execSQL("INSERT INTO `" + mapping.name + "` (" + columns + ") SELECT " + selection + " FROM " + staging
+                        + getLastOfEachPrimaryKey(mapping, staging) + " ORDER BY rowid");
+                out = (int) queryForLong(db, "SELECT changes()");
+                transaction.setSuccessful();
+            } finally {
+                transaction.end();
+            }
+            return out;
+        } finally {
+            db.execSQL("DROP TABLE IF EXISTS " + staging);
+        }
+    }
+
+    /**
+     * as with persist, the last of several entities having the same primary key wins; entities without one are all kept.
+     * Any other conflict fails the reload instead of being resolved by replacing rows.
+     *
+     * @return the WHERE clause selecting the staged rows to insert.
+     */
+    private static String getLastOfEachPrimaryKey(TableMapping mapping, String staging) {
+        int primaryIndex = mapping.primaryFieldName != null ? mapping.indexOf(mapping.primaryFieldName) : -1;
+        if (primaryIndex < 0 || mapping.accessors[primaryIndex] == null) {
+            return "";
+        }
+        String primaryKey = "`" + mapping.primaryFieldName + "`";
+        return " WHERE " + primaryKey + " IS NULL OR rowid IN (SELECT MAX(rowid) FROM " + staging
+                + " WHERE " + primaryKey + " IS NOT NULL GROUP BY " + primaryKey + ")";
+    }
+
+    private static long queryForLong(SQLiteDatabase db, String sql) {
+        SQLiteStatement statement = db.compileStatement(sql);
+        try {
+            return statement.simpleQueryForLong();
+        } finally {
+            statement.close();
+        }
+    }
+
+    private static void load(SQLiteDatabase db, String insert, TableMapping mapping, List<?> entities) throws IllegalAccessException {
+        SQLiteStatement statement = db.compileStatement(insert);
+        NestedTransaction transaction = NestedTransaction.begin(db);
+        try {
+            for (Object entity : entities) {
+                statement.clearBindings();
+                int index = 1;
+                for (FieldAccessor accessor : mapping.accessors) {
+                    if (accessor != null) {
+                        FieldAccessor.bindValue(statement, index, accessor.getStoredValue(entity));
+                        index++;
+                    }
+                }
+                statement.executeInsert();
+            }
+            transaction.setSuccessful();
+        } finally {
+            transaction.end();
+            statement.close();
+        }
+    }
+
+    /**
+     * @return the default value expression of each column of the table having one.
+     */
+    private static HashMap<String, String> getColumnDefaults(SQLiteDatabase db, String table) {
+        HashMap<String, String> columnDefaultPair = new HashMap<String, String>();
+        Cursor c = db.rawQuery("PRAGMA table_info(`" + table + "`)", null);
+        try {
+            int nameIndex = c.getColumnIndex("name");
+            int defaultIndex = c.getColumnIndex("dflt_value");
+            while (c.moveToNext()) {
+                if (!c.isNull(defaultIndex)) {
+                    columnDefaultPair.put(c.getString(nameIndex), "(" + c.getString(defaultIndex) + ")");
+                }
+            }
+        } finally {
+            c.close();
+        }
+        return columnDefaultPair;
+    }
+}
@@ -0,0 +1,513 @@
+package istat.android.data.access.sqlite;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
+
+/**
+ * Compiled statements of a database, keyed by operation, table and bound column set.
+ * Entries are evicted in least recently used order once {@link #MAX_SIZE} is reached; a statement
+ * is closed when it is evicted or cleared, or once the last thread using it releases it.
+ * The database is only weakly held, a cache goes away with its database.
+ * The cache of a database has to be cleared on schema change and before the database is closed,
+ * see {@link SQLite#clearStatementCache(SQLiteDatabase)}.
+ */
+final class StatementCache {
+    final static int MAX_SIZE = 32;
+    final static String OPERATION_INSERT = "INSERT", OPERATION_UPDATE = "UPDATE", OPERATION_DELETE = "DELETE",
+            OPERATION_MULTI_ROW_INSERT = "INSERT_ROWS", OPERATION_UPSERT = "UPSERT", OPERATION_QUERY = "QUERY";
+    /**
+     * first SQLite version supporting INSERT ... ON CONFLICT DO UPDATE, 3.24.0.
+     */
+    final static int UPSERT_MIN_VERSION = 3024000;
+    /**
+     * returned by {@link #executeUpsert(TableMapping, Object)} when the table can't be upserted.
+     */
+    final static long UPSERT_UNSUPPORTED = Long.MIN_VALUE;
+    /**
+     * INSERT conflict clauses, indexed by SQLiteDatabase.CONFLICT_* constants.
+     */
+    final static String[] CONFLICT_VALUES = {"", " OR ROLLBACK", " OR ABORT", " OR FAIL", " OR IGNORE", " OR REPLACE"};
+    /**
+     * default SQLITE_MAX_VARIABLE_NUMBER, the maximum count of arguments bound to one statement.
+     */
+    final static int MAX_BIND_ARGS = 999;
+    final static WeakHashMap<SQLiteDatabase, StatementCache> dbCachePair = new WeakHashMap<SQLiteDatabase, StatementCache>();
+    final WeakReference<SQLiteDatabase> dbReference;
+    int sqliteVersion = -1;
+    /**
+     * tables whose primary key has no PRIMARY KEY or UNIQUE constraint to be an ON CONFLICT target.
+     */
+    final HashSet<String> upsertRefusedTables = new HashSet<String>();
+    /**
+     * count of threads between {@link #acquire(String, String)} and {@link #release(SQLiteStatement)} of each statement in use.
+     */
+    final IdentityHashMap<SQLiteStatement, Integer> statementUsers = new IdentityHashMap<SQLiteStatement, Integer>();
+    final LinkedHashMap<String, SQLiteStatement> statements = new LinkedHashMap<String, SQLiteStatement>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SQLiteStatement> eldest) {
+            if (size() > MAX_SIZE) {
+                closeUnused(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private StatementCache(SQLiteDatabase db) {
+        this.dbReference = new WeakReference<SQLiteDatabase>(db);
+    }
+
+    SQLiteDatabase getDb() {
+        SQLiteDatabase db = dbReference.get();
+        if (db == null) {
+            throw new IllegalStateException("the database of this statement cache has been released.");
+        }
+        return db;
+    }
+
+    static StatementCache of(SQLiteDatabase db) {
+        synchronized (dbCachePair) {
+            StatementCache cache = dbCachePair.get(db);
+            if (cache == null) {
+                cache = new StatementCache(db);
+                dbCachePair.put(db, cache);
+            }
+            return cache;
+        }
+    }
+
+    static void clear(SQLiteDatabase db) {
+        StatementCache cache;
+        synchronized (dbCachePair) {
+            cache = dbCachePair.remove(db);
+        }
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return true if entities of the mapping can be written through cached statements.
+     */
+    static boolean isSupported(TableMapping mapping) {
+        return mapping.columns.length <= 64;
+    }
+
+    static boolean isUpdateDeleteSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB;
+    }
+
+    /**
+     * multi-row VALUES needs SQLite 3.7.11, shipped since Jelly Bean.
+     */
+    static boolean isMultiRowInsertSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+    }
+
+    /**
+     * @return count of rows of the mapping which fit in one multi-row insert.
+     */
+    static int getRowsPerInsert(TableMapping mapping) {
+        return getRowsPerInsert(mapping.columns.length);
+    }
+
+    /**
+     * @return count of rows binding that many columns each which fit in one multi-row insert.
+     */
+    static int getRowsPerInsert(int columnCount) {
+        return Math.max(1, MAX_BIND_ARGS / Math.max(1, columnCount));
+    }
+
+    /**
+     * @return version of the SQLite library of the database, as major * 1000000 + minor * 1000 + patch.
+     */
+    synchronized int getSQLiteVersion() {
+        if (sqliteVersion < 0) {
+            SQLiteStatement statement = getDb().compileStatement("SELECT sqlite_version()");
+            try {
+                sqliteVersion = parseSQLiteVersion(statement.simpleQueryForString());
+            } catch (Exception e) {
+                e.printStackTrace();
+                sqliteVersion = 0;
+            } finally {
+                statement.close();
+            }
+        }
+        return sqliteVersion;
+    }
+
+    static int parseSQLiteVersion(String version) {
+        String[] parts = version.split("\\.");
+        int out = 0;
+        for (int i = 0; i < 3; i++) {
+            out = out * 1000 + (i < parts.length ? Integer.parseInt(parts[i]) : 0);
+        }
+        return out;
+    }
+
+    synchronized boolean isUpsertSupported(TableMapping mapping) {
+        return getSQLiteVersion() >= UPSERT_MIN_VERSION && !upsertRefusedTables.contains(mapping.name);
+    }
+
+    synchronized void clear() {
+        Iterator<SQLiteStatement> iterator = statements.values().iterator();
+        while (iterator.hasNext()) {
+            closeUnused(iterator.next());
+        }
+        statements.clear();
+    }
+
+    /**
+     * @return the statement cached under the key, compiled from the sql if there is none.
+     * Callers have to synchronize on the returned statement while binding and executing it,
+     * and to {@link #release(SQLiteStatement)} it afterward.
+     */
+    synchronized SQLiteStatement acquire(String key, String sql) {
+        SQLiteStatement statement = statements.get(key);
+        if (statement == null) {
+            statement = getDb().compileStatement(sql);
+            statements.put(key, statement);
+        }
+        Integer users = statementUsers.get(statement);
+        statementUsers.put(statement, users == null ? 1 : users + 1);
+        return statement;
+    }
+
+    /**
+     * release a statement given by {@link #acquire(String, String)}, closing it if it has left the cache meanwhile.
+     */
+    synchronized void release(SQLiteStatement statement) {
+        Integer users = statementUsers.get(statement);
+        if (users != null && users > 1) {
+            statementUsers.put(statement, users - 1);
+            return;
+        }
+        statementUsers.remove(statement);
+        if (!statements.containsValue(statement)) {
+            statement.close();
+        }
+    }
+
+    /**
+     * close a statement leaving the cache, unless a thread is still using it: {@link #release(SQLiteStatement)} will.
+     */
+    private void closeUnused(SQLiteStatement statement) {
+        if (!statementUsers.containsKey(statement)) {
+            statement.close();
+        }
+    }
+
+    static void bindStrings(SQLiteStatement statement, String[] args) {
+        statement.clearBindings();
+        if (args != null) {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i] == null) {
+                    statement.bindNull(i + 1);
+                } else {
+                    statement.bindString(i + 1, args[i]);
+                }
+            }
+        }
+    }
+
+    long executeInsert(TableMapping mapping, Object entity) throws IllegalAccessException {
+        return executeInsert(mapping, entity, SQLiteDatabase.CONFLICT_NONE);
+    }
+
+    /**
+     * @param conflictAlgorithm one of SQLiteDatabase.CONFLICT_* constants.
+     * @return the row id of the inserted row, -1 if it has been ignored.
+     */
+    long executeInsert(TableMapping mapping, Object entity, int conflictAlgorithm) throws IllegalAccessException {
+        Object[] values = mapping.binder == null ? new Object[mapping.columns.length] : null;
+        long columnSet = mapping.binder == null ? readValues(mapping, entity, values) : mapping.binder.getColumnSet(entity);
+        SQLiteStatement statement = acquire(key(OPERATION_INSERT + conflictAlgorithm, mapping, columnSet),
+                createInsertStatement(mapping, columnSet, conflictAlgorithm));
+        try {
+            synchronized (statement) {
+                statement.clearBindings();
+                bindEntity(statement, mapping, entity, values);
+                return statement.executeInsert();
+            }
+        } finally {
+            release(statement);
+        }
+    }
+
+    /**
+     * insert the entity, or update the non null columns of the row having the same primary key,
+     * with a single INSERT ... ON CONFLICT(pk) DO UPDATE statement.
+     * Whether the row has been inserted is told by last_insert_rowid(), read before on the same connection:
+     * an inserted row reusing the row id of the previous insertion of the connection, deleted meanwhile,
+     * is reported as updated.
+     *
+     * @return the row id of an inserted row, 1 for an updated row, as the UPDATE then INSERT fallback does;
+     * {@link #UPSERT_UNSUPPORTED} if the table can't be upserted.
+     */
+    long executeUpsert(TableMapping mapping, Object entity) throws IllegalAccessException {
+        if (!isUpsertSupported(mapping)) {
+            return UPSERT_UNSUPPORTED;
+        }
+        Object[] values = mapping.binder == null ? new Object[mapping.columns.length] : null;
+        long columnSet = mapping.binder == null ? readValues(mapping, entity, values) : mapping.binder.getColumnSet(entity);
+        SQLiteStatement statement;
+        try {
+            statement = acquire(key(OPERATION_UPSERT, mapping, columnSet), createUpsertStatement(mapping, columnSet));
+        } catch (SQLiteException e) {
+            //"ON CONFLICT clause does not match any PRIMARY KEY or UNIQUE constraint"
+            synchronized (this) {
+                upsertRefusedTables.add(mapping.name);
+            }
+            return UPSERT_UNSUPPORTED;
+        }
+        SQLiteStatement lastRowIdQuery = acquire(OPERATION_QUERY + ":last_insert_rowid", "SELECT last_insert_rowid()");
+        //both statements have to run on the same connection.
+        NestedTransaction transaction = getDb().inTransaction() ? null : NestedTransaction.begin(getDb());
+        try {
+            long lastRowId;
+            synchronized (lastRowIdQuery) {
+                lastRowId = lastRowIdQuery.simpleQueryForLong();
+            }
+            long rowId;
+            synchronized (statement) {
+                statement.clearBindings();
+                bindEntity(statement, mapping, entity, values);
+                rowId = statement.executeInsert();
+            }
+            if (transaction != null) {
+                transaction.setSuccessful();
+            }
+            return rowId != lastRowId ? rowId : 1;
+        } finally {
+            if (transaction != null) {
+                transaction.end();
+            }
+            release(lastRowIdQuery);
+            release(statement);
+        }
+    }
+
+    /**
+     * insert the rows with a single INSERT ... VALUES (...),(...) binding the columns of the column set,
+     * so that the other columns take their default value, as with {@link #executeInsert(TableMapping, Object)}.
+     * The statement is compiled once per table, column set and count of rows.
+     *
+     * @param rows values read by {@link #readValues(TableMapping, Object, Object[])}, all having the given non null column set.
+     * @return last inserted row id.
+     */
+    long executeMultiRowInsert(TableMapping mapping, long columnSet, List<Object[]> rows) {
+        SQLiteStatement statement = acquire(key(OPERATION_MULTI_ROW_INSERT, mapping, columnSet) + ":" + rows.size(),
+                createMultiRowInsertStatement(mapping, columnSet, rows.size()));
+        try {
+            synchronized (statement) {
+                statement.clearBindings();
+                int index = 1;
+                for (Object[] values : rows) {
+                    index = bindValues(statement, values, index);
+                }
+                return statement.executeInsert();
+            }
+        } finally {
+            release(statement);
+        }
+    }
+
+    int executeUpdate(TableMapping mapping, Object entity, String primaryKey) throws IllegalAccessException {
+        Object[] values = mapping.binder == null ? new Object[mapping.columns.length] : null;
+        long columnSet = mapping.binder == null ? readValues(mapping, entity, values) : mapping.binder.getColumnSet(entity);
+        if (columnSet == 0) {
+            return 0;
+        }
+        SQLiteStatement statement = acquire(key(OPERATION_UPDATE, mapping, columnSet), createUpdateStatement(mapping, columnSet));
+        try {
+            synchronized (statement) {
+                statement.clearBindings();
+                int index = bindEntity(statement, mapping, entity, values);
+                statement.bindString(index, primaryKey);
+                return statement.executeUpdateDelete();
+            }
+        } finally {
+            release(statement);
+        }
+    }
+
+    /**
+     * update the given columns of the row having the primary key.
+     */
+    int executeUpdate(TableMapping mapping, ContentValues values, String primaryKey) {
+        String[] columns = values.keySet().toArray(new String[values.size()]);
+        if (columns.length == 0) {
+            return 0;
+        }
+        Arrays.sort(columns);
+        StringBuilder key = new StringBuilder(OPERATION_UPDATE).append(':').append(mapping.name);
+        StringBuilder sql = new StringBuilder("UPDATE `").append(mapping.name).append("` SET ");
+        for (int i = 0; i < columns.length; i++) {
+            key.append(':').append(columns[i]);
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append('`').append(columns[i]).append("`=?");
+        }
+        sql.append(" WHERE `").append(mapping.primaryFieldName).append("`=?");
+        SQLiteStatement statement = acquire(key.toString(), sql.toString());
+        try {
+            synchronized (statement) {
+                statement.clearBindings();
+                for (int i = 0; i < columns.length; i++) {
+                    FieldAccessor.bindValue(statement, i + 1, values.get(columns[i]));
+                }
+                statement.bindString(columns.length + 1, primaryKey);
+                return statement.executeUpdateDelete();
+            }
+        } finally {
+            release(statement);
+        }
+    }
+
+    int executeDelete(TableMapping mapping, String primaryKey) {
+        SQLiteStatement statement = acquire(OPERATION_DELETE + ":" + mapping.name,
+                "DELETE FROM `" + mapping.name + "` WHERE `" + mapping.primaryFieldName + "`=?");
+        try {
+            synchronized (statement) {
+                statement.clearBindings();
+                statement.bindString(1, primaryKey);
+                return statement.executeUpdateDelete();
+            }
+        } finally {
+            release(statement);
+        }
+    }
+
+    /**
+     * read the stored value of every column into values.
+     *
+     * @return bit set of the non null columns.
+     */
+    static long readValues(TableMapping mapping, Object entity, Object[] values) throws IllegalAccessException {
+        long columnSet = 0;
+        for (int i = 0; i < mapping.accessors.length; i++) {
+            FieldAccessor accessor = mapping.accessors[i];
+            if (accessor != null) {
+                values[i] = accessor.getStoredValue(entity);
+                if (values[i] != null) {
+                    columnSet |= 1L << i;
+                }
+            }
+        }
+        return columnSet;
+    }
+
+    /**
+     * bind the non null columns of the entity, starting at index 1: straight from its fields with the generated
+     * binder of the mapping if any, from the values read by {@link #readValues(TableMapping, Object, Object[])} otherwise.
+     *
+     * @return the next index to bind.
+     */
+    private static int bindEntity(SQLiteStatement statement, TableMapping mapping, Object entity, Object[] values) {
+        if (mapping.binder != null) {
+            return mapping.binder.bindTo(entity, statement, 1);
+        }
+        return bindValues(statement, values, 1);
+    }
+
+    /**
+     * bind the non null values, starting at the given index.
+     *
+     * @return the next index to bind.
+     */
+    static int bindValues(SQLiteStatement statement, Object[] values, int index) {
+        for (Object value : values) {
+            if (value != null) {
+                FieldAccessor.bindValue(statement, index, value);
+                index++;
+            }
+        }
+        return index;
+    }
+
+    static String key(String operation, TableMapping mapping, long columnSet) {
+        return operation + ":" + mapping.name + ":" + Long.toHexString(columnSet);
+    }
+
+    static String createInsertStatement(TableMapping mapping, long columnSet) {
+        return createInsertStatement(mapping, columnSet, SQLiteDatabase.CONFLICT_NONE);
+    }
+
+    static String createInsertStatement(TableMapping mapping, long columnSet, int conflictAlgorithm) {
+        StringBuilder columns = new StringBuilder();
+        StringBuilder args = new StringBuilder();
+        for (int i = 0; i < mapping.columns.length; i++) {
+            if ((columnSet & (1L << i)) != 0) {
+                if (args.length() > 0) {
+                    columns.append(',');
+                    args.append(',');
+                }
+                columns.append('`').append(mapping.columns[i]).append('`');
+                args.append('?');
+            }
+        }
+        String insert = "INSERT" + CONFLICT_VALUES[conflictAlgorithm] + " INTO `" + mapping.name + "`";
+        if (args.length() == 0) {
+            return insert + " DEFAULT VALUES";
+        }
+        return insert + " (" + columns + ") VALUES (" + args + ")";
+    }
+
+    static String createMultiRowInsertStatement(TableMapping mapping, long columnSet, int rows) {
+        String insert = createInsertStatement(mapping, columnSet);
+        String args = insert.substring(insert.lastIndexOf(" VALUES ") + 8);
+        StringBuilder sql = new StringBuilder(insert);
+        for (int i = 1; i < rows; i++) {
+            sql.append(',').append(args);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * the primary key updates itself when it is the only bound column, so that an existing row counts as updated.
+     */
+    static String createUpsertStatement(TableMapping mapping, long columnSet) {
+        StringBuilder update = new StringBuilder();
+        for (int i = 0; i < mapping.columns.length; i++) {
+            if ((columnSet & (1L << i)) != 0 && !mapping.columns[i].equals(mapping.primaryFieldName)) {
+                if (update.length() > 0) {
+                    update.append(',');
+                }
+                update.append('`').append(mapping.columns[i]).append("`=excluded.`").append(mapping.columns[i]).append('`');
+            }
+        }
+        if (update.length() == 0) {
+            update.append('`').append(mapping.primaryFieldName).append("`=excluded.`").append(mapping.primaryFieldName).append('`');
+        }
+        return createInsertStatement(mapping, columnSet) + " ON CONFLICT(`" + mapping.primaryFieldName + "`) DO UPDATE SET " + update;
+    }
+
+    static String createUpdateStatement(TableMapping mapping, long columnSet) {
+        StringBuilder sql = new StringBuilder("UPDATE `").append(mapping.name).append("` SET ");
+        boolean first = true;
+        for (int i = 0; i < mapping.columns.length; i++) {
+            if ((columnSet & (1L << i)) != 0) {
+                if (!first) {
+                    sql.append(',');
+                }
+                sql.append('`').append(mapping.columns[i]).append("`=?");
+                first = false;
+            }
+        }
+        return sql.append(" WHERE `").append(mapping.primaryFieldName).append("`=?").toString();
+    }
+}
@@ -0,0 +1,316 @@
+package istat.android.data.access.sqlite;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import android.database.Cursor;
+import android.text.TextUtils;
+import android.util.Log;
+
+import istat.android.data.access.sqlite.utils.Toolkit;
+
+/**
+ * Immutable description of how a class is mapped on a table: table name,
+ * ordered columns, primary key and the fields backing them.
+ * A mapping is computed once per class and shared process-wide, use {@link #of(Class)}
+ * to obtain it.
+ */
+public final class TableMapping {
+    final static ConcurrentHashMap<Class<?>, TableMapping> registry = new ConcurrentHashMap<Class<?>, TableMapping>();
+    final Class<?> modelClass;
+    final String name;
+    final String primaryFieldName;
+    final Field primaryField;
+    final int primaryKeyPolicy;
+    /**
+     * columns and the fields backing them, at the same index.
+     */
+    final String[] columns;
+    final Field[] columnFields;
+    /**
+     * columns selected by default, lazy columns excluded.
+     */
+    final String[] eagerColumns;
+    /**
+     * every persistable field of the class, including the one which are not columns.
+     */
+    final Field[] fields;
+    /**
+     * accessors of {@link #columns} (null when a column has no backing field) and of {@link #fields}.
+     */
+    final FieldAccessor[] accessors;
+    final FieldAccessor[] fieldAccessors;
+    /**
+     * unmodifiable, they are shared with every model of the class.
+     */
+    final Map<String, Integer> columnIndexPair;
+    final Map<String, Field> nameFieldPair;
+    final Map<String, Field> nestedTableFieldPair;
+    /**
+     * compile-time generated binder of the class, null when reflection has to be used.
+     */
+    final SQLiteBinder<Object> binder;
+    /**
+     * no-arg constructor of the class, null when it has none.
+     */
+    final Constructor<?> constructor;
+
+    public static TableMapping of(Class<?> cLass) {
+        TableMapping mapping = registry.get(cLass);
+        if (mapping == null) {
+            mapping = new TableMapping(cLass);
+            TableMapping existing = registry.putIfAbsent(cLass, mapping);
+            if (existing != null) {
+                mapping = existing;
+            }
+        }
+        return mapping;
+    }
+
+    private TableMapping(Class<?> cLass) {
+        List<String> columnList = new ArrayList<String>();
+        List<Field> columnFieldList = new ArrayList<Field>();
+        List<Field> fieldList = new ArrayList<Field>();
+        HashMap<String, Field> nameFieldPair = new HashMap<String, Field>();
+        HashMap<String, Field> nestedTableFieldPair = new HashMap<String, Field>();
+        boolean hasColumnAnnotation = false;
+        String primaryKey = null, eligiblePrimaryName = null;
+        Field primary = null, eligiblePrimaryField = null;
+        for (Field field : Toolkit.getAllFieldFields(cLass, true, false)) {
+            if (field.isSynthetic() || field.isAnnotationPresent(SQLiteModel.Ignore.class)) {
+                continue;
+            }
+            field.setAccessible(true);
+            fieldList.add(field);
+            String columnName = null;
+            if (field.isAnnotationPresent(SQLiteModel.Column.class)) {
+                columnName = field.getAnnotation(SQLiteModel.Column.class).name();
+                if (TextUtils.isEmpty(columnName)) {
+                    columnName = field.getName();
+                }
+                if (!hasColumnAnnotation) {
+                    columnList.clear();
+                    columnFieldList.clear();
+                    nameFieldPair.clear();
+                    nestedTableFieldPair.clear();
+                }
+                hasColumnAnnotation = true;
+            }
+            String keyName = columnName != null ? columnName : field.getName();
+            if (field.isAnnotationPresent(SQLiteModel.PrimaryKey.class) && primaryKey == null) {
+                primaryKey = keyName;
+                primary = field;
+            } else if (field.getName().equalsIgnoreCase("id")) {
+                eligiblePrimaryName = keyName;
+                eligiblePrimaryField = field;
+            }
+            if (columnName == null && !hasColumnAnnotation) {
+                columnName = field.getName();
+            }
+            if (columnName != null && !columnList.contains(columnName)) {
+                columnList.add(columnName);
+                columnFieldList.add(field);
+                nameFieldPair.put(columnName, field);
+                if (isNestedTableProperty(field)) {
+                    nestedTableFieldPair.put(columnName, field);
+                }
+            }
+        }
+        if (primaryKey == null) {
+            primaryKey = eligiblePrimaryName;
+            primary = eligiblePrimaryField;
+        }
+        if (primaryKey != null && !columnList.contains(primaryKey)) {
+            columnList.add(primaryKey);
+            columnFieldList.add(primary);
+            nameFieldPair.put(primaryKey, primary);
+        }
+        String tableName = null;
+        if (cLass.isAnnotationPresent(SQLiteModel.Table.class)) {
+            tableName = cLass.getAnnotation(SQLiteModel.Table.class).name();
+        }
+        if (TextUtils.isEmpty(tableName)) {
+            tableName = cLass.getSimpleName();
+        }
+        int policy = SQLiteModel.PrimaryKey.POLICY_NONE;
+        if (primary != null && primary.isAnnotationPresent(SQLiteModel.PrimaryKey.class)) {
+            policy = primary.getAnnotation(SQLiteModel.PrimaryKey.class).policy();
+        }
+        this.modelClass = cLass;
+        this.name = tableName;
+        this.primaryFieldName = primaryKey;
+        this.primaryField = primary;
+        this.primaryKeyPolicy = policy;
+        this.columns = columnList.toArray(new String[columnList.size()]);
+        this.columnFields = columnFieldList.toArray(new Field[columnFieldList.size()]);
+        this.fields = fieldList.toArray(new Field[fieldList.size()]);
+        this.fieldAccessors = new FieldAccessor[fields.length];
+        HashMap<Field, FieldAccessor> fieldAccessorPair = new HashMap<Field, FieldAccessor>();
+        for (int i = 0; i < fields.length; i++) {
+            fieldAccessors[i] = new FieldAccessor(fields[i]);
+            fieldAccessorPair.put(fields[i], fieldAccessors[i]);
+        }
+        this.accessors = new FieldAccessor[columns.length];
+        HashMap<String, Integer> columnIndexPair = new HashMap<String, Integer>();
+        List<String> eagerColumnList = new ArrayList<String>();
+        for (int i = 0; i < columns.length; i++) {
+            columnIndexPair.put(columns[i], i);
+            accessors[i] = columnFields[i] != null ? fieldAccessorPair.get(columnFields[i]) : null;
+            if (!isLazyColumn(columnFields[i]) || columns[i].equals(primaryKey)) {
+                eagerColumnList.add(columns[i]);
+            }
+        }
+        this.eagerColumns = eagerColumnList.toArray(new String[eagerColumnList.size()]);
+        this.columnIndexPair = Collections.unmodifiableMap(columnIndexPair);
+        this.nameFieldPair = Collections.unmodifiableMap(nameFieldPair);
+        this.nestedTableFieldPair = Collections.unmodifiableMap(nestedTableFieldPair);
+        this.binder = findBinder(cLass, columns);
+        this.constructor = findConstructor(cLass);
+    }
+
+    private static Constructor<?> findConstructor(Class<?> cLass) {
+        try {
+            Constructor<?> constructor = cLass.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SQLiteBinder<Object> findBinder(Class<?> cLass, String[] columns) {
+        try {
+            Class<?> binderClass = Class.forName(SQLiteBinder.binderClassName(cLass), true, cLass.getClassLoader());
+            SQLiteBinder<Object> binder = (SQLiteBinder<Object>) binderClass.getDeclaredConstructor().newInstance();
+            if (Arrays.equals(binder.getColumns(), columns)) {
+                return binder;
+            }
+            Log.w("TableMapping", binderClass.getName() + " does not match the columns of " + cLass.getName() + ", reflection will be used.");
+        } catch (ClassNotFoundException e) {
+            //no generated binder, reflection will be used.
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    private static boolean isLazyColumn(Field field) {
+        return field != null && !field.getType().isPrimitive()
+                && field.isAnnotationPresent(SQLiteModel.Column.class)
+                && field.getAnnotation(SQLiteModel.Column.class).lazy();
+    }
+
+    private static boolean isNestedTableProperty(Field field) {
+        return field.isAnnotationPresent(SQLiteModel.OneToOne.class)
+                || field.isAnnotationPresent(SQLiteModel.OneToMany.class)
+                || field.isAnnotationPresent(SQLiteModel.ManyToMany.class)
+                || field.isAnnotationPresent(SQLiteModel.ManyToOne.class);
+    }
+
+    public Class<?> getModelClass() {
+        return modelClass;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+    /**
+     * @return columns selected by default, which excludes lazy columns.
+     */
+    public String[] getEagerColumns() {
+        return eagerColumns.clone();
+    }
+
+    public String getPrimaryFieldName() {
+        return primaryFieldName;
+    }
+
+    public boolean hasBinder() {
+        return binder != null;
+    }
+
+    public int getPrimaryKeyPolicy() {
+        return primaryKeyPolicy;
+    }
+
+    public Field getField(String column) {
+        return nameFieldPair.get(column);
+    }
+
+    /**
+     * create an instance of the mapped class and fill it in a single pass from the current row.
+     */
+    Object createFromCursor(Cursor c, int[] columnIndexes) throws InstantiationException, IllegalAccessException {
+        if (binder != null) {
+            Object entity = binder.newInstance();
+            binder.fillFromCursor(entity, c, columnIndexes);
+            return entity;
+        }
+        Object entity = newInstance();
+        for (int i = 0; i < accessors.length; i++) {
+            if (accessors[i] != null && columnIndexes[i] >= 0) {
+                try {
+                    accessors[i].readInto(entity, c, columnIndexes[i]);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return entity;
+    }
+
+    Object newInstance() throws InstantiationException, IllegalAccessException {
+        if (constructor == null) {
+            throw new InstantiationException(modelClass.getName() + " has no no-arg constructor.");
+        }
+        try {
+            return constructor.newInstance();
+        } catch (InvocationTargetException e) {
+            InstantiationException error = new InstantiationException(modelClass.getName());
+            error.initCause(e.getCause());
+            throw error;
+        }
+    }
+
+    /**
+     * @return the cursor index of each column, -1 when the cursor doesn't contain it.
+     */
+    int[] resolveColumnIndexes(Cursor c) {
+        int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            indexes[i] = c.getColumnIndex(columns[i]);
+        }
+        return indexes;
+    }
+
+    FieldAccessor getAccessor(String column) {
+        Integer index = columnIndexPair.get(column);
+        return index != null ? accessors[index] : null;
+    }
+
+    /**
+     * @return the ordinal of the given column, or -1 if it is not mapped.
+     */
+    public int indexOf(String column) {
+        Integer index = columnIndexPair.get(column);
+        return index != null ? index : -1;
+    }
+
+    Field[] getNestedTableFields() {
+        return nestedTableFieldPair.values().toArray(new Field[nestedTableFieldPair.size()]);
+    }
+}
@@ -0,0 +1,11 @@
+package istat.android.data.access.sqlite.interfaces;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * iterator over an opened result set, which has to be closed unless it has been iterated to its end.
+ */
+public interface CloseableIterator<T> extends Iterator<T>, Iterable<T>, Closeable {
+	public void close();
+}
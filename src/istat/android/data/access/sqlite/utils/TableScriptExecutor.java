@@ -4,6 +4,8 @@ import android.database.sqlite.SQLiteDatabase;
 
 import java.util.List;
 
+import istat.android.data.access.sqlite.SQLite;
+
 /**
  * Created by istat on 24/01/17.
  */
@@ -11,6 +13,7 @@ import java.util.List;
 public class TableScriptExecutor {
     public static void drop(SQLiteDatabase db, Class... tables) throws InstantiationException, IllegalAccessException {
         List<String> scripts = TableScriptFactory.drop(tables);
+        SQLite.clearStatementCache(db);
         for (String sql : scripts) {
             db.execSQL(sql);
         }
@@ -18,6 +21,7 @@ public class TableScriptExecutor {
 
     public static void truncate(SQLiteDatabase db, Class... tables) throws InstantiationException, IllegalAccessException {
         List<String> scripts = TableScriptFactory.truncate(tables);
+        SQLite.clearStatementCache(db);
         for (String sql : scripts) {
             db.execSQL(sql);
         }
@@ -25,6 +29,7 @@ public class TableScriptExecutor {
 
     public static void create(SQLiteDatabase db, Class... tables) throws InstantiationException, IllegalAccessException {
         List<String> scripts = TableScriptFactory.create(tables);
+        SQLite.clearStatementCache(db);
         for (String sql : scripts) {
             db.execSQL(sql);
         }
@@ -38,6 +43,7 @@ public class TableScriptExecutor {
 
     public static boolean execute(SQLiteDatabase db, String... scripts) {
         try {
+            SQLite.clearStatementCache(db);
             for (String sql : scripts) {
                 db.execSQL(sql);
             }
@@ -49,6 +55,7 @@ public class TableScriptExecutor {
     }
 
     public static boolean execute(SQLiteDatabase db, List<String> scripts) {
+        SQLite.clearStatementCache(db);
         for (String sql : scripts) {
             db.execSQL(sql);
         }
@@ -10,6 +10,7 @@ import java.util.HashMap;
 import java.util.List;
 
 import istat.android.data.access.sqlite.SQLiteModel;
+import istat.android.data.access.sqlite.TableMapping;
 
 /**
  * Created by Istat Toukea on 21/11/2016.
@@ -25,8 +26,7 @@ public class TableScriptFactory {
     public static List<String> drop(Class<?>... cLassS) throws IllegalAccessException, InstantiationException {
         List<String> out = new ArrayList<String>();
         for (Class<?> cLass : cLassS) {
-            SQLiteModel model = SQLiteModel.fromClass(cLass);
-            out.add("DROP TABLE " + model.getName() + ";");
+            out.add("DROP TABLE " + TableMapping.of(cLass).getName() + ";");
         }
         return out;
     }
@@ -34,8 +34,7 @@ public class TableScriptFactory {
     public static List<String> truncate(Class<?>... cLassS) throws IllegalAccessException, InstantiationException {
         List<String> out = new ArrayList<String>();
         for (Class<?> cLass : cLassS) {
-            SQLiteModel model = SQLiteModel.fromClass(cLass);
-            out.add("TRUNCATE TABLE " + model.getName() + ";");
+            out.add("TRUNCATE TABLE " + TableMapping.of(cLass).getName() + ";");
         }
         return out;
     }
@@ -88,13 +87,13 @@ public class TableScriptFactory {
      */
 
     public String create() throws IllegalAccessException, InstantiationException {
-        SQLiteModel model = SQLiteModel.fromClass(cLass);
-        String sql = "CREATE TABLE IF NOT EXISTS `" + model.getName() + "` (";
+        TableMapping mapping = TableMapping.of(cLass);
+        String sql = "CREATE TABLE IF NOT EXISTS `" + mapping.getName() + "` (";
         int index = 0;
-        for (String columnName : model.getColumns()) {
-            Field field = model.getField(columnName);
+        for (String columnName : mapping.getColumns()) {
+            Field field = mapping.getField(columnName);
             if (field != null) {
-                String line = createStatementLine(model, columnName, field);
+                String line = createStatementLine(mapping, columnName, field);
                 if (!TextUtils.isEmpty(line)) {
                     if (index > 0) {
                         line = "," + line;
@@ -108,17 +107,22 @@ public class TableScriptFactory {
         return sql;
     }
 
-    HashMap<Class, FieldAdapter> adapterQueue = new HashMap() {
+    HashMap<Class, FieldAdapter> adapterQueue = new HashMap<Class, FieldAdapter>() {
         {
             put(String.class, STRING_ADAPTER);
             put(Float.class, FLOAT_ADAPTER);
             put(Double.class, DOUBLE_ADAPTER);
             put(Integer.class, INTEGER_ADAPTER);
+            put(Long.class, INTEGER_ADAPTER);
+            put(Short.class, INTEGER_ADAPTER);
             put(Date.class, DATETIME_ADAPTER);
+            put(byte[].class, BLOB_ADAPTER);
 
             put(float.class, FLOAT_ADAPTER);
             put(double.class, DOUBLE_ADAPTER);
             put(int.class, INTEGER_ADAPTER);
+            put(long.class, INTEGER_ADAPTER);
+            put(short.class, INTEGER_ADAPTER);
         }
     };
 
@@ -146,6 +150,12 @@ public class TableScriptFactory {
             return "`" + columnName + "` VARCHAR ";
         }
     };
+    static FieldAdapter BLOB_ADAPTER = new FieldAdapter() {
+        @Override
+        String onCreateLine(String columnName, Field field) {
+            return "`" + columnName + "` BLOB ";
+        }
+    };
     static FieldAdapter DATETIME_ADAPTER = new FieldAdapter() {
         @Override
         String onCreateLine(String columnName, Field field) {
@@ -153,7 +163,7 @@ public class TableScriptFactory {
         }
     };
 
-    private String createStatementLine(SQLiteModel model, String columnName, Field field) {
+    private String createStatementLine(TableMapping mapping, String columnName, Field field) {
         String out;
         Type type = field.getType();
         FieldAdapter adapter = adapterQueue.get(type);
@@ -162,8 +172,8 @@ public class TableScriptFactory {
         } else {
             out = adapterQueue.get(String.class).createLine(columnName, field);
         }
-        if (columnName.equals(model.getPrimaryFieldName())) {
-            int policy = model.getPrimaryKeyPolicy();
+        if (columnName.equals(mapping.getPrimaryFieldName())) {
+            int policy = mapping.getPrimaryKeyPolicy();
             out += " PRIMARY KEY ";
             if (policy == SQLiteModel.PrimaryKey.POLICY_AUTOINCREMENT) {
                 if (field.getType().isAssignableFrom(Integer.class)) {
@@ -64,14 +64,28 @@ public class Toolkit {
     }
 
     public static boolean isJson(String json) {
-        return json.matches("(^\\{.*\\}$)|(^\\[.*\\]$)");
+        return isJsonObject(json) || isJArray(json);
     }
 
     public static boolean isJArray(String json) {
-        return json.matches("(^\\[.*\\]$)");
+        return isEnclosed(json, '[', ']');
     }
 
     public static boolean isJsonObject(String json) {
-        return json.matches("(^\\{.*\\}$)");
+        return isEnclosed(json, '{', '}');
+    }
+
+    private static boolean isEnclosed(String value, char first, char last) {
+        if (value == null) {
+            return false;
+        }
+        int start = 0, end = value.length() - 1;
+        while (start < end && Character.isWhitespace(value.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(value.charAt(end))) {
+            end--;
+        }
+        return start < end && value.charAt(start) == first && value.charAt(end) == last;
     }
 }
@@ -0,0 +1,75 @@
+package istat.android.data.access.sqlite;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AggregateTest extends DatabaseTestCase {
+
+    @Before
+    public void fillTable() {
+        insertItem(null, "bolt", 10);
+        insertItem(null, "bolt", 20);
+        insertItem(null, "nut", 30);
+        insertItem(null, "nut", 40);
+    }
+
+    @Test
+    public void aggregatesCoverTheWholeTable() {
+        assertEquals(4, sql.select(Item.class).count());
+        assertEquals(2, sql.select(Item.class).countDistinct("name"));
+        assertEquals(100, sql.select(Item.class).sum("quantity"));
+        assertEquals(25.0, sql.select(Item.class).avg("quantity"), 0);
+        assertEquals(10, sql.select(Item.class).min("quantity"));
+        assertEquals(40, sql.select(Item.class).max("quantity"));
+    }
+
+    @Test
+    public void aggregatesHonorTheWhereClause() {
+        assertEquals(2, sql.select(Item.class).where("name").equalTo("nut").count());
+        assertEquals(70, sql.select(Item.class).where("name").equalTo("nut").sum("quantity"));
+        assertTrue(sql.select(Item.class).where("name").equalTo("nut").exists());
+        assertFalse(sql.select(Item.class).where("name").equalTo("washer").exists());
+    }
+
+    @Test
+    public void limitedSelectionIsAggregatedAsSubQuery() {
+        SQLiteSelect select = sql.select(Item.class).orderBy("quantity DESC").limit(3);
+
+        assertEquals(3, select.count());
+        //the limit applies to the rows following the ORDER BY.
+        assertEquals(90, select.sum("quantity"));
+    }
+
+    @Test
+    public void decimalValuesAreAggregatedAsDouble() {
+        db.execSQL("UPDATE Item SET quantity = quantity + 0.5 WHERE name = 'nut'");
+
+        assertEquals(71.0, sql.select(Item.class).where("name").equalTo("nut").sumAsDouble("quantity"), 0);
+        assertEquals(10.0, sql.select(Item.class).minAsDouble("quantity"), 0);
+        assertEquals(40.5, sql.select(Item.class).maxAsDouble("quantity"), 0);
+    }
+
+    @Test
+    public void aggregatesDoNotTakeTheCachedStatements() {
+        sql.select(Item.class).where("name").equalTo("nut").count();
+        sql.select(Item.class).sum("quantity");
+        sql.select(Item.class).exists();
+
+        assertTrue(StatementCache.of(db).statements.isEmpty());
+    }
+
+    @Test
+    public void emptySelectionAggregatesToZero() {
+        db.execSQL("DELETE FROM Item");
+
+        assertEquals(0, sql.select(Item.class).count());
+        assertEquals(0, sql.select(Item.class).sum("quantity"));
+        assertEquals(0.0, sql.select(Item.class).avg("quantity"), 0);
+        assertEquals(0, sql.select(Item.class).max("quantity"));
+        assertEquals(0.0, sql.select(Item.class).maxAsDouble("quantity"), 0);
+    }
+}
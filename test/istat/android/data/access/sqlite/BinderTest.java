@@ -0,0 +1,58 @@
+package istat.android.data.access.sqlite;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BinderTest extends DatabaseTestCase {
+
+    public static class Tool {
+        public Integer id;
+        public String name;
+        public int weight;
+    }
+
+    @Before
+    public void createTable() {
+        db.execSQL("CREATE TABLE Tool (id INTEGER PRIMARY KEY, name TEXT DEFAULT 'unnamed', weight INTEGER)");
+        BinderTest_Tool_SQLiteBinder.boundEntities = 0;
+    }
+
+    @Test
+    public void generatedBinderIsPickedUp() {
+        assertEquals(BinderTest_Tool_SQLiteBinder.class, TableMapping.of(Tool.class).binder.getClass());
+    }
+
+    @Test
+    public void cachedWritesBindThroughTheBinder() throws Exception {
+        Tool tool = new Tool();
+        tool.weight = 3;
+        long id = sql.insert(tool).execute()[0];
+
+        assertEquals(1, BinderTest_Tool_SQLiteBinder.boundEntities);
+        //the null name is not bound and takes its default.
+        assertEquals("unnamed", queryString("SELECT name FROM Tool WHERE id = " + id));
+
+        tool.id = (int) id;
+        tool.name = "hammer";
+        tool.weight = 5;
+        SQLiteModel.fromObject(tool).update(db);
+
+        assertEquals(2, BinderTest_Tool_SQLiteBinder.boundEntities);
+        assertEquals("hammer", queryString("SELECT name FROM Tool WHERE id = " + id));
+        assertEquals(5, queryLong("SELECT weight FROM Tool WHERE id = " + id));
+    }
+
+    @Test
+    public void rowsAreHydratedThroughTheBinder() {
+        db.execSQL("INSERT INTO Tool (id, name, weight) VALUES (1, 'saw', 2)");
+
+        List<Tool> tools = sql.select(Tool.class).execute();
+        assertEquals(1, tools.size());
+        assertEquals("saw", tools.get(0).name);
+        assertEquals(2, tools.get(0).weight);
+    }
+}
@@ -0,0 +1,79 @@
+package istat.android.data.access.sqlite;
+
+/**
+ * written as SQLiteBinderProcessor generates it for {@link BinderTest.Tool}, counting the bound entities.
+ */
+public final class BinderTest_Tool_SQLiteBinder extends SQLiteBinder<BinderTest.Tool> {
+    private final static String[] COLUMNS = {"id", "name", "weight"};
+    static int boundEntities;
+
+    @Override
+    public String[] getColumns() {
+        return COLUMNS.clone();
+    }
+
+    @Override
+    public BinderTest.Tool newInstance() {
+        return new BinderTest.Tool();
+    }
+
+    @Override
+    public void fillFromCursor(BinderTest.Tool entity, android.database.Cursor c, int[] columnIndexes) {
+        int index;
+        index = columnIndexes[0];
+        if (index >= 0 && !c.isNull(index)) {
+            entity.id = c.getInt(index);
+        }
+        index = columnIndexes[1];
+        if (index >= 0 && !c.isNull(index)) {
+            entity.name = c.getString(index);
+        }
+        index = columnIndexes[2];
+        if (index >= 0 && !c.isNull(index)) {
+            entity.weight = c.getInt(index);
+        }
+    }
+
+    @Override
+    public android.content.ContentValues toContentValues(BinderTest.Tool entity) {
+        android.content.ContentValues values = new android.content.ContentValues();
+        if (entity.id != null) {
+            values.put("id", entity.id);
+        }
+        if (entity.name != null) {
+            values.put("name", entity.name);
+        }
+        values.put("weight", entity.weight);
+        return values;
+    }
+
+    @Override
+    public long getColumnSet(BinderTest.Tool entity) {
+        long columnSet = 0x4L;
+        if (entity.id != null) {
+            columnSet |= 1L << 0;
+        }
+        if (entity.name != null) {
+            columnSet |= 1L << 1;
+        }
+        return columnSet;
+    }
+
+    @Override
+    public int bindTo(BinderTest.Tool entity, android.database.sqlite.SQLiteStatement statement, int index) {
+        boundEntities++;
+        if (entity.id != null) {
+            statement.bindLong(index++, entity.id);
+        }
+        if (entity.name != null) {
+            statement.bindString(index++, entity.name);
+        }
+        statement.bindLong(index++, entity.weight);
+        return index;
+    }
+
+    @Override
+    public String getPrimaryKey(BinderTest.Tool entity) {
+        return entity.id == null ? "" : String.valueOf(entity.id);
+    }
+}
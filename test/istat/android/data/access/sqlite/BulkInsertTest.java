@@ -0,0 +1,81 @@
+package istat.android.data.access.sqlite;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class BulkInsertTest extends DatabaseTestCase {
+    final static int ROW_COUNT = 1200, CHUNK_SIZE = 500;
+
+    @Test
+    public void everyRowIdIsReturned() throws Exception {
+        long[] ids = sql.insert(items(ROW_COUNT)).setChunkSize(CHUNK_SIZE).execute();
+
+        assertEquals(ROW_COUNT, ids.length);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            assertEquals(i + 1, ids[i]);
+        }
+        assertEquals(ROW_COUNT, count("Item"));
+    }
+
+    @Test
+    public void progressIsReportedOncePerChunk() throws Exception {
+        final List<String> progress = new ArrayList<String>();
+        sql.insert(items(ROW_COUNT)).setChunkSize(CHUNK_SIZE).setProgressListener(new SQLite.ProgressListener() {
+            @Override
+            public void onProgress(int done, int total) {
+                progress.add(done + "/" + total);
+            }
+        }).execute();
+
+        List<String> expected = new ArrayList<String>();
+        expected.add("500/1200");
+        expected.add("1000/1200");
+        expected.add("1200/1200");
+        assertEquals(expected, progress);
+    }
+
+    @Test
+    public void failingChunkLeavesTheCommittedOnes() {
+        List<Item> items = items(ROW_COUNT);
+        //conflicts with the first row, in the second chunk.
+        items.get(CHUNK_SIZE + 10).id = 1;
+        try {
+            sql.insert(items).setChunkSize(CHUNK_SIZE).execute();
+            fail("the duplicate row should fail the insertion.");
+        } catch (IllegalAccessException e) {
+            //expected.
+        }
+
+        assertEquals(CHUNK_SIZE, count("Item"));
+    }
+
+    @Test
+    public void persistReturnsTheResultOfEveryRow() {
+        insertItem(1, "bolt", 10);
+        List<Item> items = items(3);
+        items.get(0).id = 1;
+
+        long[] results = sql.persist(items).setChunkSize(2).execute();
+
+        assertEquals(3, results.length);
+        //the existing row is updated, the others are inserted.
+        assertEquals(1, results[0]);
+        assertEquals(2, results[1]);
+        assertEquals(3, results[2]);
+        assertEquals(3, count("Item"));
+        assertEquals("item1", queryString("SELECT name FROM Item WHERE id = 1"));
+    }
+
+    static List<Item> items(int count) {
+        List<Item> items = new ArrayList<Item>(count);
+        for (int i = 1; i <= count; i++) {
+            items.add(Item.of(null, "item" + i, i));
+        }
+        return items;
+    }
+}
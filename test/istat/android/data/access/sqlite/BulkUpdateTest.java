@@ -0,0 +1,63 @@
+package istat.android.data.access.sqlite;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import android.content.ContentValues;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class BulkUpdateTest extends DatabaseTestCase {
+
+    @Before
+    public void fillTable() {
+        insertItem(1, "bolt", 10);
+        insertItem(2, "nut", 20);
+        insertItem(3, "washer", 30);
+    }
+
+    @Test
+    public void entitiesAreUpdatedOnTheirPrimaryKey() {
+        int[] updated = sql.update(Item.class).updateAll(Arrays.asList(
+                Item.of(1, "screw", null), Item.of(9, "spring", 90), Item.of(3, "washer", 33)));
+
+        assertArrayEquals(new int[]{1, 0, 1}, updated);
+        assertEquals("screw", queryString("SELECT name FROM Item WHERE id = 1"));
+        //null fields are not written.
+        assertEquals(10, queryLong("SELECT quantity FROM Item WHERE id = 1"));
+        assertEquals(33, queryLong("SELECT quantity FROM Item WHERE id = 3"));
+        assertEquals(3, count("Item"));
+    }
+
+    @Test
+    public void valuesAreUpdatedOnTheirPrimaryKey() {
+        LinkedHashMap<Integer, ContentValues> primaryKeyValuesPair = new LinkedHashMap<Integer, ContentValues>();
+        primaryKeyValuesPair.put(2, values("name", "pin"));
+        primaryKeyValuesPair.put(7, values("name", "rivet"));
+        primaryKeyValuesPair.put(3, values("name", "clip"));
+
+        assertArrayEquals(new int[]{1, 0, 1}, sql.update(Item.class).updateAll(primaryKeyValuesPair));
+        assertEquals("pin", queryString("SELECT name FROM Item WHERE id = 2"));
+        assertEquals("clip", queryString("SELECT name FROM Item WHERE id = 3"));
+    }
+
+    @Test
+    public void failingRowRollsTheBatchBack() {
+        LinkedHashMap<Integer, ContentValues> primaryKeyValuesPair = new LinkedHashMap<Integer, ContentValues>();
+        primaryKeyValuesPair.put(1, values("name", "pin"));
+        primaryKeyValuesPair.put(2, values("weight", "12"));
+
+        assertArrayEquals(new int[]{0, 0}, sql.update(Item.class).updateAll(primaryKeyValuesPair));
+        assertEquals("bolt", queryString("SELECT name FROM Item WHERE id = 1"));
+    }
+
+    static ContentValues values(String column, String value) {
+        ContentValues values = new ContentValues();
+        values.put(column, value);
+        return values;
+    }
+}
@@ -0,0 +1,46 @@
+package istat.android.data.access.sqlite;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChangeTrackingTest extends DatabaseTestCase {
+
+    @Before
+    public void fillTable() {
+        insertItem(1, "bolt", 10);
+    }
+
+    @Test
+    public void unchangedEntityIsNotWritten() throws Exception {
+        Item item = sql.select(Item.class).trackChanges().executeForFirst();
+        db.execSQL("UPDATE Item SET name = 'nut' WHERE id = 1");
+
+        assertEquals(0, SQLiteModel.fromObject(item).update(db));
+        assertEquals(0, SQLiteModel.fromObject(item).persist(db));
+        assertEquals("nut", queryString("SELECT name FROM Item WHERE id = 1"));
+    }
+
+    @Test
+    public void onlyChangedColumnsAreWritten() throws Exception {
+        Item item = sql.select(Item.class).trackChanges().executeForFirst();
+        db.execSQL("UPDATE Item SET name = 'nut' WHERE id = 1");
+        item.quantity = 20;
+
+        assertEquals(1, SQLiteModel.fromObject(item).update(db));
+        assertEquals("nut", queryString("SELECT name FROM Item WHERE id = 1"));
+        assertEquals(20, queryLong("SELECT quantity FROM Item WHERE id = 1"));
+        //the snapshot follows the written values.
+        assertEquals(0, SQLiteModel.fromObject(item).update(db));
+    }
+
+    @Test
+    public void unchangedEntityIsInsertedBackOnceDeleted() throws Exception {
+        Item item = sql.select(Item.class).trackChanges().executeForFirst();
+        db.execSQL("DELETE FROM Item");
+
+        assertEquals(1, SQLiteModel.fromObject(item).persist(db));
+        assertEquals("bolt", queryString("SELECT name FROM Item WHERE id = 1"));
+    }
+}
@@ -0,0 +1,65 @@
+package istat.android.data.access.sqlite;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChunkedDeleteTest extends DatabaseTestCase {
+    final static int ROW_COUNT = 2500;
+
+    @Before
+    public void fillTable() {
+        insertItems(ROW_COUNT, 10);
+    }
+
+    @Test
+    public void entitiesBeyondTheBindLimitAreDeleted() {
+        List<Item> items = new ArrayList<Item>();
+        for (int i = 1; i <= 2100; i++) {
+            items.add(Item.of(i, null, null));
+        }
+
+        assertEquals(2100, sql.delete(items));
+        assertEquals(ROW_COUNT - 2100, count("Item"));
+    }
+
+    @Test
+    public void primaryKeysAreDeletedInChunks() {
+        List<Integer> keys = new ArrayList<Integer>();
+        for (int i = 1; i <= StatementCache.MAX_BIND_ARGS + 1; i++) {
+            keys.add(i);
+        }
+
+        assertEquals(StatementCache.MAX_BIND_ARGS + 1, sql.delete(Item.class).executeByPrimaryKeys(keys));
+        assertEquals(ROW_COUNT - StatementCache.MAX_BIND_ARGS - 1, count("Item"));
+    }
+
+    @Test
+    public void rowIdChunksHonorTheWhereClause() {
+        int deleted = sql.delete(Item.class).where("quantity").equalTo(3).executeInRowIdChunks(100);
+
+        assertEquals(ROW_COUNT / 10, deleted);
+        assertEquals(ROW_COUNT - ROW_COUNT / 10, count("Item"));
+    }
+
+    @Test
+    public void rowIdChunksReachTheLargestRowId() {
+        db.execSQL("DELETE FROM Item");
+        for (long id = Long.MAX_VALUE - 2; id > 0; id++) {
+            db.execSQL("INSERT INTO Item (id, name, quantity) VALUES (" + id + ", 'item', 3)");
+        }
+
+        //the last chunk would end beyond Long.MAX_VALUE.
+        assertEquals(3, sql.delete(Item.class).executeInRowIdChunks(2));
+        assertEquals(0, count("Item"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rowIdChunksMustBePositive() {
+        sql.delete(Item.class).executeInRowIdChunks(0);
+    }
+}
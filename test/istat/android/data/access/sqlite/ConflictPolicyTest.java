@@ -0,0 +1,66 @@
+package istat.android.data.access.sqlite;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConflictPolicyTest extends DatabaseTestCase {
+
+    @Before
+    public void fillTable() {
+        insertItem(1, "bolt", 10);
+    }
+
+    @Test
+    public void ignoredRowsAreSkipped() throws Exception {
+        Item duplicate = Item.of(1, "nut", 20);
+        SQLiteInsert insert = sql.insert(duplicate, Item.of(2, "washer", 30))
+                .setConflictAlgorithm(SQLiteDatabase.CONFLICT_IGNORE);
+
+        assertArrayEquals(new long[]{-1, 2}, insert.execute());
+        assertEquals(Arrays.<Object>asList(duplicate), insert.getSkipped());
+        assertEquals("bolt", queryString("SELECT name FROM Item WHERE id = 1"));
+        assertEquals(2, count("Item"));
+    }
+
+    @Test
+    public void ignoreDuplicateSkipsTheExistingRows() {
+        SQLiteInsert insert = sql.insert(Item.of(1, "nut", 20));
+
+        assertArrayEquals(new long[]{-1}, insert.execute(true));
+        assertEquals(1, insert.getSkipped().size());
+    }
+
+    @Test
+    public void replacedRowTakesTheNewValues() throws Exception {
+        long[] ids = sql.insert(Item.of(1, "nut", 20)).setConflictAlgorithm(SQLiteDatabase.CONFLICT_REPLACE).execute();
+
+        assertArrayEquals(new long[]{1}, ids);
+        assertEquals("nut", queryString("SELECT name FROM Item WHERE id = 1"));
+        assertEquals(1, count("Item"));
+    }
+
+    @Test
+    public void abortIsTheDefault() {
+        try {
+            sql.insert(Item.of(1, "nut", 20)).execute();
+            fail("the duplicate row should fail the insertion.");
+        } catch (IllegalAccessException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("conflicts"));
+        }
+        assertEquals("bolt", queryString("SELECT name FROM Item WHERE id = 1"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void duplicateFailsWhenNotIgnored() {
+        sql.insert(Item.of(1, "nut", 20)).execute(false);
+    }
+}
@@ -0,0 +1,46 @@
+package istat.android.data.access.sqlite;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import android.database.Cursor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class CursorPlanTest extends DatabaseTestCase {
+
+    @Test
+    public void columnIndexesAreResolvedOncePerMapping() {
+        TableMapping mapping = TableMapping.of(Item.class);
+        Cursor c = db.rawQuery("SELECT name, id FROM Item", null);
+        try {
+            CursorPlan plan = new CursorPlan(c);
+            int[] indexes = plan.getColumnIndexes(mapping);
+
+            assertSame(indexes, plan.getColumnIndexes(mapping));
+            assertEquals(1, indexes[mapping.indexOf("id")]);
+            assertEquals(0, indexes[mapping.indexOf("name")]);
+            assertEquals(-1, indexes[mapping.indexOf("quantity")]);
+        } finally {
+            c.close();
+        }
+    }
+
+    @Test
+    public void everyRowIsReadThroughThePlan() {
+        insertItem(1, "bolt", 10);
+        insertItem(2, "nut", null);
+        insertItem(3, "washer", 30);
+
+        List<Item> items = sql.select(Item.class).columns("quantity", "id").orderBy("id").execute();
+
+        assertEquals(3, items.size());
+        assertEquals(Integer.valueOf(3), items.get(2).id);
+        assertEquals(Integer.valueOf(30), items.get(2).quantity);
+        assertNull(items.get(1).quantity);
+        assertNull(items.get(0).name);
+    }
+}
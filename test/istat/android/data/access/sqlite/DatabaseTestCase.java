@@ -0,0 +1,77 @@
+package istat.android.data.access.sqlite;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * in-memory database holding the {@link Item} table, opened before each test and closed after it.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 18)
+public abstract class DatabaseTestCase {
+    protected SQLiteDatabase db;
+    protected SQLite.SQL sql;
+
+    @Before
+    public void openDatabase() {
+        db = SQLiteDatabase.create(null);
+        db.execSQL(Item.CREATE_TABLE);
+        sql = SQLite.from(db);
+    }
+
+    @After
+    public void closeDatabase() {
+        sql.close();
+    }
+
+    protected void insertItem(Integer id, String name, Integer quantity) {
+        db.execSQL("INSERT INTO Item (id, name, quantity) VALUES (?, ?, ?)", new Object[]{id, name, quantity});
+    }
+
+    /**
+     * insert count items, with the ids 1 to count, named "item" + id.
+     */
+    protected void insertItems(int count, int quantityModulo) {
+        db.beginTransaction();
+        try {
+            for (int id = 1; id <= count; id++) {
+                insertItem(id, "item" + id, id % quantityModulo);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    protected long queryLong(String query) {
+        SQLiteStatement statement = db.compileStatement(query);
+        try {
+            return statement.simpleQueryForLong();
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * @return the first column of the first row, null if there is none.
+     */
+    protected String queryString(String query) {
+        Cursor c = db.rawQuery(query, null);
+        try {
+            return c.moveToFirst() ? c.getString(0) : null;
+        } finally {
+            c.close();
+        }
+    }
+
+    protected long count(String table) {
+        return queryLong("SELECT COUNT(*) FROM " + table);
+    }
+}
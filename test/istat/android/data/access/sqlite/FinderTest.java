@@ -0,0 +1,61 @@
+package istat.android.data.access.sqlite;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FinderTest extends DatabaseTestCase {
+
+    @Before
+    public void fillTable() {
+        insertItem(1, "nut", 30);
+        insertItem(2, "bolt", 10);
+        insertItem(3, "washer", 20);
+    }
+
+    @Test
+    public void firstAndLastFollowTheOrderBy() {
+        SQLiteSelect select = sql.select(Item.class).orderBy("quantity");
+
+        assertEquals("bolt", select.<Item>findFirst().name);
+        assertEquals("nut", select.<Item>findLast().name);
+        //the ORDER BY is not reversed twice.
+        assertEquals("nut", select.<Item>findLast().name);
+        assertEquals("washer", select.<Item>findAtIndex(1).name);
+    }
+
+    @Test
+    public void lastFallsBackToTheGreatestPrimaryKey() {
+        assertEquals(Integer.valueOf(3), sql.select(Item.class).<Item>findLast().id);
+    }
+
+    @Test
+    public void selectionIsUntouchedByTheFinders() {
+        SQLiteSelect select = sql.select(Item.class).orderBy("quantity");
+        select.findLast();
+        select.findAtIndex(2);
+
+        List<Item> items = select.execute();
+        assertEquals(3, items.size());
+        assertEquals("bolt", items.get(0).name);
+        assertEquals("nut", items.get(2).name);
+    }
+
+    @Test
+    public void indexBeyondTheSelectionFindsNothing() {
+        assertNull(sql.select(Item.class).findAtIndex(3));
+        assertNull(sql.select(Item.class).limit(2).findAtIndex(2));
+    }
+
+    @Test
+    public void existsHonorsTheWhereClause() {
+        assertTrue(sql.select(Item.class).where("quantity").greatThan(20).exists());
+        assertFalse(sql.select(Item.class).where("quantity").greatThan(30).exists());
+    }
+}
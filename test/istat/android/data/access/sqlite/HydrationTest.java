@@ -0,0 +1,59 @@
+package istat.android.data.access.sqlite;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class HydrationTest extends DatabaseTestCase {
+
+    public static class Gadget {
+        private Integer id;
+        private String name;
+        private int weight = -1;
+
+        private Gadget() {
+
+        }
+    }
+
+    @Before
+    public void createTable() {
+        db.execSQL("CREATE TABLE Gadget (id INTEGER PRIMARY KEY, name TEXT, weight INTEGER)");
+    }
+
+    @Test
+    public void privateMembersAreHydrated() {
+        db.execSQL("INSERT INTO Gadget (id, name, weight) VALUES (1, 'lever', 12)");
+
+        List<Gadget> gadgets = sql.select(Gadget.class).execute();
+
+        assertEquals(1, gadgets.size());
+        assertEquals(Integer.valueOf(1), gadgets.get(0).id);
+        assertEquals("lever", gadgets.get(0).name);
+        assertEquals(12, gadgets.get(0).weight);
+    }
+
+    @Test
+    public void nullColumnLeavesTheFieldToItsInitialValue() {
+        db.execSQL("INSERT INTO Gadget (id, name) VALUES (1, 'lever')");
+
+        Gadget gadget = sql.select(Gadget.class).executeForFirst();
+
+        assertEquals(-1, gadget.weight);
+    }
+
+    @Test
+    public void eachRowGetsItsOwnInstance() {
+        db.execSQL("INSERT INTO Gadget (id, name, weight) VALUES (1, 'lever', 12)");
+        db.execSQL("INSERT INTO Gadget (id, name, weight) VALUES (2, 'pulley', 3)");
+
+        List<Gadget> gadgets = sql.select(Gadget.class).orderBy("id").execute();
+
+        assertEquals("lever", gadgets.get(0).name);
+        assertEquals("pulley", gadgets.get(1).name);
+        assertEquals(3, gadgets.get(1).weight);
+    }
+}
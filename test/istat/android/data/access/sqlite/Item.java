@@ -0,0 +1,21 @@
+package istat.android.data.access.sqlite;
+
+/**
+ * entity of the table shared by the tests, see {@link DatabaseTestCase}.
+ */
+public class Item {
+    public final static int DEFAULT_QUANTITY = 7;
+    public final static String CREATE_TABLE = "CREATE TABLE Item (id INTEGER PRIMARY KEY, name TEXT, quantity INTEGER DEFAULT "
+            + DEFAULT_QUANTITY + ")";
+    public Integer id;
+    public String name;
+    public Integer quantity;
+
+    public static Item of(Integer id, String name, Integer quantity) {
+        Item item = new Item();
+        item.id = id;
+        item.name = name;
+        item.quantity = quantity;
+        return item;
+    }
+}
@@ -0,0 +1,72 @@
+package istat.android.data.access.sqlite;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class KeysetPageTest extends DatabaseTestCase {
+    final static int ROW_COUNT = 25;
+
+    @Before
+    public void fillTable() {
+        insertItems(ROW_COUNT, 5);
+    }
+
+    @Test
+    public void pagesFollowTheSortColumnsThenThePrimaryKey() {
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int quantity = 0; quantity < 5; quantity++) {
+            for (int id = 1; id <= ROW_COUNT; id++) {
+                if (id % 5 == quantity) {
+                    expected.add(id);
+                }
+            }
+        }
+
+        SQLiteSelect select = sql.select(Item.class).orderBy("quantity");
+        List<Integer> ids = new ArrayList<Integer>();
+        SQLitePage<Item> page = select.page(10);
+        assertEquals(10, page.getItems().size());
+        assertTrue(page.hasNext());
+        addIds(ids, page);
+        //the same selection is reused for every page.
+        page = select.afterToken(page.getContinuationToken()).page(10);
+        assertEquals(10, page.getItems().size());
+        assertTrue(page.hasNext());
+        addIds(ids, page);
+        page = select.afterToken(page.getContinuationToken()).page(10);
+        assertEquals(5, page.getItems().size());
+        assertFalse(page.hasNext());
+        assertNull(page.getContinuationToken());
+        addIds(ids, page);
+
+        assertEquals(expected, ids);
+    }
+
+    @Test
+    public void pageLeavesTheSelectionUntouched() {
+        SQLiteSelect select = sql.select(Item.class).orderBy("quantity");
+        select.after(2, 12).page(5);
+
+        assertEquals(ROW_COUNT, select.count());
+        assertEquals(ROW_COUNT, select.execute().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sizeMustBePositive() {
+        sql.select(Item.class).page(0);
+    }
+
+    static void addIds(List<Integer> ids, SQLitePage<Item> page) {
+        for (Item item : page.getItems()) {
+            ids.add(item.id);
+        }
+    }
+}
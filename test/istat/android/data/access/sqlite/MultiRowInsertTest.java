@@ -0,0 +1,43 @@
+package istat.android.data.access.sqlite;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class MultiRowInsertTest extends DatabaseTestCase {
+
+    @Test
+    public void returnedIdsAreTheRowIds() throws Exception {
+        long[] ids = sql.insert(Item.of(null, "a", 1), Item.of(null, "b", 2), Item.of(null, "c", 3))
+                .setMultiRowInsert(true)
+                .execute();
+
+        assertArrayEquals(new long[]{1, 2, 3}, ids);
+        assertEquals("a", queryString("SELECT name FROM Item WHERE id = 1"));
+        assertEquals("b", queryString("SELECT name FROM Item WHERE id = 2"));
+        assertEquals("c", queryString("SELECT name FROM Item WHERE id = 3"));
+    }
+
+    @Test
+    public void nullColumnsTakeTheirDefault() throws Exception {
+        sql.insert(Item.of(null, "a", null), Item.of(null, "b", 2), Item.of(null, "c", null))
+                .setMultiRowInsert(true)
+                .execute();
+
+        assertEquals(Item.DEFAULT_QUANTITY, queryLong("SELECT quantity FROM Item WHERE id = 1"));
+        assertEquals(2, queryLong("SELECT quantity FROM Item WHERE id = 2"));
+        assertEquals(Item.DEFAULT_QUANTITY, queryLong("SELECT quantity FROM Item WHERE id = 3"));
+    }
+
+    @Test
+    public void explicitPrimaryKeysKeepTheirIds() throws Exception {
+        long[] ids = sql.insert(Item.of(10, "a", 1), Item.of(null, "b", 2), Item.of(5, "c", 3))
+                .setMultiRowInsert(true)
+                .execute();
+
+        assertArrayEquals(new long[]{10, 11, 5}, ids);
+        assertEquals("b", queryString("SELECT name FROM Item WHERE id = 11"));
+        assertEquals("c", queryString("SELECT name FROM Item WHERE id = 5"));
+    }
+}
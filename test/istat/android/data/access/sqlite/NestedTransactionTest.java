@@ -0,0 +1,90 @@
+package istat.android.data.access.sqlite;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NestedTransactionTest extends DatabaseTestCase {
+
+    @Test
+    public void nestedTransactionsCommitTogether() {
+        final boolean[] inner = new boolean[1];
+        boolean outer = sql.inTransaction(new SQLite.TransactionHandler() {
+            @Override
+            public void onTransaction(SQLite.SQL sql) throws Exception {
+                insertItem(null, "outer", 1);
+                inner[0] = sql.inTransaction(new SQLite.TransactionHandler() {
+                    @Override
+                    public void onTransaction(SQLite.SQL sql) throws Exception {
+                        insertItem(null, "inner", 1);
+                    }
+                });
+            }
+        });
+
+        assertTrue(inner[0]);
+        assertTrue(outer);
+        assertEquals(2, count("Item"));
+        assertFalse(db.inTransaction());
+    }
+
+    @Test
+    public void failedNestedTransactionOnlyRollsItsOwnChangesBack() {
+        final boolean[] inner = new boolean[1];
+        boolean outer = sql.inTransaction(new SQLite.TransactionHandler() {
+            @Override
+            public void onTransaction(SQLite.SQL sql) throws Exception {
+                insertItem(null, "outer", 1);
+                inner[0] = sql.inTransaction(new SQLite.TransactionHandler() {
+                    @Override
+                    public void onTransaction(SQLite.SQL sql) throws Exception {
+                        insertItem(null, "inner", 1);
+                        throw new Exception("inner failure");
+                    }
+                });
+            }
+        });
+
+        assertFalse(inner[0]);
+        assertTrue(outer);
+        assertEquals(1, count("Item"));
+        assertEquals("outer", queryString("SELECT name FROM Item"));
+        assertFalse(db.inTransaction());
+    }
+
+    @Test
+    public void failedChunkOnlyRollsItsOwnRowsBack() throws Exception {
+        NestedTransaction outer = NestedTransaction.begin(db);
+        insertItem(1, "bolt", 10);
+        NestedTransaction chunk = NestedTransaction.begin(db);
+        insertItem(2, "nut", 20);
+        assertFalse(chunk.end());
+        chunk = NestedTransaction.begin(db);
+        insertItem(3, "washer", 30);
+        chunk.setSuccessful();
+        assertTrue(chunk.end());
+        outer.setSuccessful();
+        assertTrue(outer.end());
+
+        assertEquals(2, count("Item"));
+        assertEquals(0, queryLong("SELECT COUNT(*) FROM Item WHERE id = 2"));
+    }
+
+    @Test
+    public void nestedLevelsAreSavepoints() {
+        NestedTransaction outer = NestedTransaction.begin(db);
+        NestedTransaction inner = NestedTransaction.begin(db);
+        assertFalse(outer.isNested());
+        assertTrue(inner.isNested());
+
+        inner.setSuccessful();
+        assertTrue(inner.end());
+        //the savepoint is released, the framework transaction is still the one opened by the outer level.
+        assertTrue(db.inTransaction());
+        outer.setSuccessful();
+        assertTrue(outer.end());
+        assertFalse(db.inTransaction());
+    }
+}
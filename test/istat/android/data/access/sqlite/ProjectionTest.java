@@ -0,0 +1,94 @@
+package istat.android.data.access.sqlite;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import istat.android.data.access.sqlite.interfaces.CloseableIterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ProjectionTest extends DatabaseTestCase {
+
+    public static class ItemName {
+        public Integer id;
+        public String name;
+    }
+
+    public static class Unrelated {
+        public String label;
+    }
+
+    public static class Stock {
+        public int id;
+        public String name;
+        public int quantity;
+    }
+
+    @Before
+    public void fillTable() {
+        insertItem(1, "bolt", 10);
+        insertItem(2, "nut", 20);
+        db.execSQL("CREATE TABLE Stock (id INTEGER PRIMARY KEY, name TEXT, quantity INTEGER)");
+        db.execSQL("INSERT INTO Stock (id, name, quantity) VALUES (1, 'bolt', 10)");
+    }
+
+    @Test
+    public void selectedColumnsOnlyAreFilled() {
+        List<Item> items = sql.select(Item.class).columns("id", "name").orderBy("id").execute();
+
+        assertEquals(2, items.size());
+        assertEquals("bolt", items.get(0).name);
+        assertEquals(Integer.valueOf(1), items.get(0).id);
+        assertNull(items.get(0).quantity);
+    }
+
+    @Test
+    public void rowsAreHydratedIntoTheProjection() {
+        List<ItemName> names = sql.select(Item.class).orderBy("id").executeAs(ItemName.class);
+
+        assertEquals(2, names.size());
+        assertEquals(Integer.valueOf(2), names.get(1).id);
+        assertEquals("nut", names.get(1).name);
+    }
+
+    @Test
+    public void trackedSelectionIteratesIntoTheProjection() {
+        CloseableIterator<ItemName> iterator = sql.select(Item.class).trackChanges().orderBy("id").iterateAs(ItemName.class);
+        try {
+            assertTrue(iterator.hasNext());
+            assertEquals("bolt", iterator.next().name);
+            assertTrue(iterator.hasNext());
+            assertEquals("nut", iterator.next().name);
+            assertFalse(iterator.hasNext());
+        } finally {
+            iterator.close();
+        }
+    }
+
+    @Test
+    public void unselectedPrimitiveFieldsAreNotWrittenBack() throws Exception {
+        Stock stock = sql.select(Stock.class).columns("id", "name").executeForFirst();
+        assertEquals(0, stock.quantity);
+
+        assertEquals(0, SQLiteModel.fromObject(stock).persist(db));
+        stock.name = "nut";
+        assertEquals(1, SQLiteModel.fromObject(stock).update(db));
+        assertEquals("nut", queryString("SELECT name FROM Stock WHERE id = 1"));
+        assertEquals(10, queryLong("SELECT quantity FROM Stock WHERE id = 1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownColumnIsRejected() {
+        sql.select(Item.class).columns("id", "weight");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void projectionMappingNoColumnIsRejected() {
+        sql.select(Item.class).executeAs(Unrelated.class);
+    }
+}
@@ -0,0 +1,88 @@
+package istat.android.data.access.sqlite;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import istat.android.data.access.sqlite.interfaces.CloseableIterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RowIteratorTest extends DatabaseTestCase {
+    final static int ROW_COUNT = 10;
+
+    @Before
+    public void fillTable() {
+        insertItems(ROW_COUNT, 3);
+    }
+
+    @Test
+    public void rowsAreIteratedInOrder() {
+        List<Integer> ids = new ArrayList<Integer>();
+        for (Item item : sql.select(Item.class).orderBy("id").<Item>iterate()) {
+            ids.add(item.id);
+        }
+
+        assertEquals(ROW_COUNT, ids.size());
+        assertEquals(Integer.valueOf(1), ids.get(0));
+        assertEquals(Integer.valueOf(ROW_COUNT), ids.get(ROW_COUNT - 1));
+    }
+
+    @Test
+    public void cursorIsClosedAtTheEnd() {
+        SQLiteSelect.RowIterator<Item> iterator = (SQLiteSelect.RowIterator<Item>) sql.select(Item.class).<Item>iterate();
+        while (iterator.hasNext()) {
+            iterator.next();
+        }
+
+        assertTrue(iterator.cursor.isClosed());
+    }
+
+    @Test
+    public void iteratorClosedEarlyHasNoNext() {
+        CloseableIterator<Item> iterator = sql.select(Item.class).iterate();
+        assertTrue(iterator.hasNext());
+        iterator.next();
+        iterator.close();
+
+        assertFalse(iterator.hasNext());
+        assertTrue(((SQLiteSelect.RowIterator<Item>) iterator).cursor.isClosed());
+    }
+
+    @Test
+    public void callbackStopsTheIteration() {
+        final List<Item> items = new ArrayList<Item>();
+        int count = sql.select(Item.class).where("quantity").equalTo(1).forEach(new SQLiteSelect.RowCallback<Item>() {
+            @Override
+            public boolean onRow(Item row) {
+                items.add(row);
+                return items.size() < 2;
+            }
+        });
+
+        assertEquals(2, count);
+        assertEquals(2, items.size());
+    }
+
+    @Test
+    public void callbackFailureIsThrownBack() {
+        try {
+            sql.select(Item.class).forEach(new SQLiteSelect.RowCallback<Item>() {
+                @Override
+                public boolean onRow(Item row) {
+                    throw new IllegalStateException("callback failure");
+                }
+            });
+            fail("the callback failure should be thrown back.");
+        } catch (IllegalStateException e) {
+            assertEquals("callback failure", e.getMessage());
+        }
+        //the cursor has been closed, the database is still usable.
+        assertEquals(ROW_COUNT, sql.select(Item.class).count());
+    }
+}
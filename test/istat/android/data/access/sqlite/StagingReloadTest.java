@@ -0,0 +1,54 @@
+package istat.android.data.access.sqlite;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class StagingReloadTest extends DatabaseTestCase {
+
+    @Before
+    public void fillTable() {
+        insertItems(3, 10);
+    }
+
+    @Test
+    public void tableIsReplacedByTheEntities() {
+        sql.replaces(Arrays.asList(Item.of(5, "bolt", 50), Item.of(6, "nut", 60)));
+
+        assertEquals(2, count("Item"));
+        assertEquals("bolt", queryString("SELECT name FROM Item WHERE id = 5"));
+        assertEquals(60, queryLong("SELECT quantity FROM Item WHERE id = 6"));
+    }
+
+    @Test
+    public void lastEntityOfAPrimaryKeyWins() throws Exception {
+        List<Item> items = Arrays.asList(Item.of(5, "bolt", 50), Item.of(5, "nut", 60), Item.of(null, "washer", 70), Item.of(null, "pin", 80));
+
+        assertEquals(3, StagingReload.execute(db, TableMapping.of(Item.class), items));
+        assertEquals("nut", queryString("SELECT name FROM Item WHERE id = 5"));
+        assertEquals(2, queryLong("SELECT COUNT(*) FROM Item WHERE id <> 5"));
+    }
+
+    @Test
+    public void nullFieldTakesTheColumnDefault() {
+        sql.replaces(Arrays.asList(Item.of(5, "bolt", null)));
+
+        assertEquals(Item.DEFAULT_QUANTITY, queryLong("SELECT quantity FROM Item WHERE id = 5"));
+    }
+
+    @Test
+    public void entitiesOfASingleClassAreStaged() {
+        List<Item> items = Arrays.asList(Item.of(5, "bolt", 50));
+        assertSame(TableMapping.of(Item.class), StagingReload.getMapping(items));
+        assertNull(StagingReload.getMapping(Arrays.asList(Item.of(5, "bolt", 50), "bolt")));
+        //the staging table is dropped once swapped in.
+        sql.replaces(items);
+        assertEquals(0, queryLong("SELECT COUNT(*) FROM sqlite_temp_master WHERE name = 'staging_Item'"));
+    }
+}
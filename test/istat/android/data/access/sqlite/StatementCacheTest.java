@@ -0,0 +1,77 @@
+package istat.android.data.access.sqlite;
+
+import org.junit.Test;
+
+import android.database.sqlite.SQLiteStatement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StatementCacheTest extends DatabaseTestCase {
+
+    @Test
+    public void statementIsCompiledOncePerColumnSet() throws Exception {
+        StatementCache cache = StatementCache.of(db);
+        SQLiteModel.fromObject(Item.of(1, "bolt", 10)).insert(db);
+        SQLiteModel.fromObject(Item.of(2, "nut", 20)).insert(db);
+        assertEquals(1, cache.statements.size());
+
+        //a null field is left to the column default, through another statement.
+        SQLiteModel.fromObject(Item.of(3, "washer", null)).insert(db);
+        assertEquals(2, cache.statements.size());
+        assertEquals(3, count("Item"));
+        assertEquals(Item.DEFAULT_QUANTITY, queryLong("SELECT quantity FROM Item WHERE id = 3"));
+    }
+
+    @Test
+    public void leastRecentlyUsedStatementIsEvicted() {
+        StatementCache cache = StatementCache.of(db);
+        for (int i = 0; i < StatementCache.MAX_SIZE; i++) {
+            cache.release(cache.acquire("key" + i, "SELECT " + i));
+        }
+        cache.release(cache.acquire("key0", "SELECT 0"));
+        cache.release(cache.acquire("overflow", "SELECT -1"));
+
+        assertEquals(StatementCache.MAX_SIZE, cache.statements.size());
+        assertTrue(cache.statements.containsKey("key0"));
+        assertFalse(cache.statements.containsKey("key1"));
+    }
+
+    @Test
+    public void evictedStatementIsClosedOnceReleased() {
+        StatementCache cache = StatementCache.of(db);
+        SQLiteStatement statement = cache.acquire("key", "SELECT 42");
+        for (int i = 0; i < StatementCache.MAX_SIZE; i++) {
+            cache.release(cache.acquire("key" + i, "SELECT " + i));
+        }
+        assertFalse(cache.statements.containsKey("key"));
+        //still usable by the thread which acquired it.
+        assertEquals(42, statement.simpleQueryForLong());
+
+        cache.release(statement);
+        try {
+            statement.simpleQueryForLong();
+            fail("the evicted statement should be closed once released.");
+        } catch (IllegalStateException e) {
+            //expected.
+        }
+    }
+
+    @Test
+    public void clearedCacheIsReplaced() {
+        StatementCache cache = StatementCache.of(db);
+        SQLiteStatement statement = cache.acquire("key", "SELECT 42");
+        cache.release(statement);
+        assertSame(statement, cache.acquire("key", "SELECT 42"));
+        cache.release(statement);
+
+        SQLite.clearStatementCache(db);
+
+        assertTrue(cache.statements.isEmpty());
+        assertNotSame(cache, StatementCache.of(db));
+    }
+}
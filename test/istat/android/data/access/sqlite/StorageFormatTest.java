@@ -0,0 +1,61 @@
+package istat.android.data.access.sqlite;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class StorageFormatTest extends DatabaseTestCase {
+
+    public enum Color {
+        RED, GREEN
+    }
+
+    public static class Paint {
+        public Integer id;
+        public Color color;
+        public List<String> tags;
+    }
+
+    @Before
+    public void createTable() {
+        db.execSQL("CREATE TABLE Paint (id INTEGER PRIMARY KEY, color TEXT, tags TEXT)");
+    }
+
+    @Test
+    public void enumIsStoredByNameAndCollectionAsJson() throws Exception {
+        Paint paint = new Paint();
+        paint.color = Color.GREEN;
+        paint.tags = Arrays.asList("matte", "blue");
+        sql.insert(paint).execute();
+
+        assertEquals("GREEN", queryString("SELECT color FROM Paint"));
+        assertEquals("[\"matte\",\"blue\"]", queryString("SELECT tags FROM Paint"));
+    }
+
+    @Test
+    public void storedValuesAreReadBack() throws Exception {
+        Paint paint = new Paint();
+        paint.color = Color.RED;
+        paint.tags = Arrays.asList("gloss");
+        sql.insert(paint).execute();
+
+        List<Paint> paints = sql.select(Paint.class).execute();
+        assertEquals(1, paints.size());
+        assertEquals(Color.RED, paints.get(0).color);
+        assertEquals(Arrays.asList("gloss"), paints.get(0).tags);
+    }
+
+    @Test
+    public void unknownEnumNameIsReadAsNull() {
+        db.execSQL("INSERT INTO Paint (color) VALUES ('PURPLE')");
+
+        List<Paint> paints = sql.select(Paint.class).execute();
+        assertEquals(1, paints.size());
+        assertNull(paints.get(0).color);
+    }
+}
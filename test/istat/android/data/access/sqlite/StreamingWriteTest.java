@@ -0,0 +1,92 @@
+package istat.android.data.access.sqlite;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class StreamingWriteTest extends DatabaseTestCase {
+    final static int ROW_COUNT = 1200, CHUNK_SIZE = 500;
+
+    /**
+     * generate items on demand, checking that the previous chunks are written before the next one is read.
+     */
+    final class ItemSource implements Iterator<Item> {
+        final int size;
+        int next = 0;
+
+        ItemSource(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            assertEquals(next / CHUNK_SIZE * CHUNK_SIZE, count("Item"));
+            next++;
+            return Item.of(null, "item" + next, next);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Test
+    public void sourceIsInsertedOneChunkAtATime() throws Exception {
+        long[] ids = sql.insert(new ItemSource(ROW_COUNT)).setChunkSize(CHUNK_SIZE).execute();
+
+        assertEquals(ROW_COUNT, ids.length);
+        assertEquals(ROW_COUNT, ids[ROW_COUNT - 1]);
+        assertEquals(ROW_COUNT, count("Item"));
+    }
+
+    @Test
+    public void progressTotalIsUnknown() throws Exception {
+        final List<String> progress = new ArrayList<String>();
+        sql.insert(new ItemSource(ROW_COUNT)).setChunkSize(CHUNK_SIZE).setProgressListener(new SQLite.ProgressListener() {
+            @Override
+            public void onProgress(int done, int total) {
+                progress.add(done + "/" + total);
+            }
+        }).execute();
+
+        assertEquals("[500/-1, 1000/-1, 1200/-1]", progress.toString());
+    }
+
+    @Test
+    public void entitiesAddedBeforeAreInsertedFirst() throws Exception {
+        long[] ids = sql.insert(Item.of(null, "first", 0)).insert(new ItemSource(2)).execute();
+
+        assertEquals(3, ids.length);
+        assertEquals("first", queryString("SELECT name FROM Item WHERE id = 1"));
+    }
+
+    @Test
+    public void persistAndMergeStream() {
+        insertItem(1, "bolt", 10);
+        List<Item> items = new ArrayList<Item>();
+        items.add(Item.of(1, "nut", 20));
+        items.add(Item.of(2, "washer", 30));
+
+        assertEquals(2, sql.persistStream(items).execute().length);
+        assertEquals("nut", queryString("SELECT name FROM Item WHERE id = 1"));
+
+        items.get(1).name = "spring";
+        assertEquals(2, sql.mergeStream(items).execute().length);
+        assertEquals("spring", queryString("SELECT name FROM Item WHERE id = 2"));
+        assertEquals(2, count("Item"));
+    }
+}
@@ -0,0 +1,34 @@
+package istat.android.data.access.sqlite;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TableMappingTest extends DatabaseTestCase {
+
+    @Test
+    public void mappingIsComputedOncePerClass() {
+        TableMapping mapping = TableMapping.of(Item.class);
+
+        assertTrue(mapping == TableMapping.of(Item.class));
+        assertEquals("Item", mapping.getName());
+        assertEquals(Arrays.asList("id", "name", "quantity"), Arrays.asList(mapping.getColumns()));
+        assertEquals("id", mapping.primaryFieldName);
+    }
+
+    @Test
+    public void returnedColumnsAreACopy() {
+        TableMapping.of(Item.class).getColumns()[0] = "changed";
+
+        assertEquals("id", TableMapping.of(Item.class).getColumns()[0]);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void mapsSharedWithTheModelsCantBeChanged() throws Exception {
+        SQLiteModel model = SQLiteModel.fromObject(Item.of(1, "bolt", 10));
+        model.nameFieldPair.remove("name");
+    }
+}
@@ -0,0 +1,75 @@
+package istat.android.data.access.sqlite;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TypedStorageTest extends DatabaseTestCase {
+
+    public static class Sample {
+        public Integer id;
+        public long count;
+        public double ratio;
+        public boolean flag;
+        public byte[] data;
+        public String label;
+    }
+
+    @Before
+    public void createTable() {
+        //columns without declared type keep the storage class of the bound values.
+        db.execSQL("CREATE TABLE Sample (id INTEGER PRIMARY KEY, count, ratio, flag, data, label)");
+    }
+
+    @Test
+    public void valuesAreStoredWithTheirOwnType() throws Exception {
+        sql.insert(sample()).execute();
+
+        assertEquals("integer", queryString("SELECT typeof(count) FROM Sample"));
+        assertEquals("real", queryString("SELECT typeof(ratio) FROM Sample"));
+        assertEquals("blob", queryString("SELECT typeof(data) FROM Sample"));
+        assertEquals("text", queryString("SELECT typeof(label) FROM Sample"));
+        //booleans are stored as text, as they always have been.
+        assertEquals("true", queryString("SELECT flag FROM Sample"));
+    }
+
+    @Test
+    public void valuesAreReadBackWithTheirOwnType() throws Exception {
+        sql.insert(sample()).execute();
+
+        List<Sample> samples = sql.select(Sample.class).execute();
+        assertEquals(1, samples.size());
+        Sample sample = samples.get(0);
+        assertEquals(Long.MAX_VALUE, sample.count);
+        assertEquals(0.1, sample.ratio, 0);
+        assertTrue(sample.flag);
+        assertArrayEquals(new byte[]{1, 2, 3}, sample.data);
+        assertEquals("label", sample.label);
+    }
+
+    @Test
+    public void numbersStoredAsTextAreStillRead() {
+        db.execSQL("INSERT INTO Sample (count, ratio, flag) VALUES ('42', '2.5', 'false')");
+
+        Sample sample = sql.select(Sample.class).executeForFirst();
+
+        assertEquals(42, sample.count);
+        assertEquals(2.5, sample.ratio, 0);
+        assertEquals(false, sample.flag);
+    }
+
+    static Sample sample() {
+        Sample sample = new Sample();
+        sample.count = Long.MAX_VALUE;
+        sample.ratio = 0.1;
+        sample.flag = true;
+        sample.data = new byte[]{1, 2, 3};
+        sample.label = "label";
+        return sample;
+    }
+}
@@ -0,0 +1,66 @@
+package istat.android.data.access.sqlite;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UpsertTest extends DatabaseTestCase {
+
+    @Before
+    public void fillTable() {
+        insertItem(1, "bolt", 10);
+    }
+
+    @Test
+    public void newEntityIsInserted() throws Exception {
+        long rowId = SQLiteModel.fromObject(Item.of(5, "nut", 20)).persist(db);
+
+        assertEquals(5, rowId);
+        assertEquals(2, count("Item"));
+        assertEquals("nut", queryString("SELECT name FROM Item WHERE id = 5"));
+    }
+
+    @Test
+    public void existingEntityIsUpdated() throws Exception {
+        long changes = SQLiteModel.fromObject(Item.of(1, "nut", null)).persist(db);
+
+        assertEquals(1, changes);
+        assertEquals(1, count("Item"));
+        assertEquals("nut", queryString("SELECT name FROM Item WHERE id = 1"));
+        //null fields leave their column untouched.
+        assertEquals(10, queryLong("SELECT quantity FROM Item WHERE id = 1"));
+    }
+
+    @Test
+    public void olderSQLiteFallsBackToUpdateThenInsert() throws Exception {
+        StatementCache cache = StatementCache.of(db);
+        cache.sqliteVersion = StatementCache.UPSERT_MIN_VERSION - 1;
+        TableMapping mapping = TableMapping.of(Item.class);
+
+        assertEquals(StatementCache.UPSERT_UNSUPPORTED, cache.executeUpsert(mapping, Item.of(1, "nut", null)));
+        assertEquals(1, SQLiteModel.fromObject(Item.of(1, "nut", null)).persist(db));
+        assertEquals(2, SQLiteModel.fromObject(Item.of(2, "washer", null)).persist(db));
+        assertEquals(Item.DEFAULT_QUANTITY, queryLong("SELECT quantity FROM Item WHERE id = 2"));
+    }
+
+    @Test
+    public void sqliteVersionIsComparable() {
+        assertEquals(3024000, StatementCache.parseSQLiteVersion("3.24.0"));
+        assertEquals(3008010, StatementCache.parseSQLiteVersion("3.8.10.2"));
+        assertTrue(StatementCache.parseSQLiteVersion("3.8") < StatementCache.UPSERT_MIN_VERSION);
+    }
+
+    @Test
+    public void upsertUpdatesTheBoundColumnsButThePrimaryKey() {
+        TableMapping mapping = TableMapping.of(Item.class);
+        long columnSet = (1L << mapping.indexOf("id")) | (1L << mapping.indexOf("name"));
+
+        String statement = StatementCache.createUpsertStatement(mapping, columnSet);
+        assertTrue(statement, statement.endsWith(" ON CONFLICT(`id`) DO UPDATE SET `name`=excluded.`name`"));
+        //an existing row still counts as updated when only the primary key is bound.
+        statement = StatementCache.createUpsertStatement(mapping, 1L << mapping.indexOf("id"));
+        assertTrue(statement, statement.endsWith(" ON CONFLICT(`id`) DO UPDATE SET `id`=excluded.`id`"));
+    }
+}
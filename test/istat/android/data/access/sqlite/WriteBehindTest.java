@@ -0,0 +1,126 @@
+package istat.android.data.access.sqlite;
+
+import java.util.concurrent.Callable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class WriteBehindTest extends DatabaseTestCase {
+    final static int MAX_PENDING_WRITES = 3;
+    SQLiteWriteBehind writeBehind;
+
+    @Before
+    public void createWriteBehind() {
+        SQLite.SQLiteConnection connection = SQLite.SQLiteConnection.create(null, "write-behind", 1, null);
+        //no flush is due to the delay during a test.
+        writeBehind = new SQLiteWriteBehind(connection, MAX_PENDING_WRITES, 60000);
+        writeBehind.access = new SQLiteDataAccess(null, "write-behind", 1) {
+            @Override
+            public void onCreateDb(SQLiteDatabase db) {
+
+            }
+
+            @Override
+            public void onUpgradeDb(SQLiteDatabase db, int oldVersion, int newVersion) {
+
+            }
+        };
+        writeBehind.access.db = db;
+    }
+
+    @After
+    public void closeWriteBehind() throws Exception {
+        if (!writeBehind.executor.isShutdown()) {
+            writeBehind.close();
+        }
+    }
+
+    @Test
+    public void writesAreCommittedTogetherOnceTheThresholdIsReached() throws Exception {
+        writeBehind.persist(Item.of(1, "bolt", 10));
+        writeBehind.persist(Item.of(2, "nut", 20));
+        waitForBackgroundThread();
+        assertEquals(2, writeBehind.getPendingCount());
+        assertEquals(0, count("Item"));
+
+        writeBehind.persist(Item.of(3, "washer", 30));
+        waitForBackgroundThread();
+        assertEquals(0, writeBehind.getPendingCount());
+        assertEquals(3, count("Item"));
+    }
+
+    @Test
+    public void writesToTheSameRowAreCoalesced() throws Exception {
+        writeBehind.insert(Item.of(1, "bolt", 10));
+        writeBehind.persist(Item.of(1, "nut", 20));
+        assertEquals(1, writeBehind.getPendingCount());
+
+        assertTrue(writeBehind.awaitFlushed());
+        assertEquals(1, count("Item"));
+        assertEquals("nut", queryString("SELECT name FROM Item WHERE id = 1"));
+    }
+
+    @Test
+    public void closeFlushesThePendingWrites() throws Exception {
+        writeBehind.persist(Item.of(1, "bolt", 10));
+
+        assertTrue(writeBehind.close());
+        assertTrue(writeBehind.executor.isTerminated());
+        assertEquals(1, count("Item"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedWriteBehindRefusesWrites() throws Exception {
+        writeBehind.close();
+        writeBehind.persist(Item.of(1, "bolt", 10));
+    }
+
+    @Test
+    public void duplicateInsertDoesNotRollTheFlushBack() throws Exception {
+        insertItem(1, "bolt", 10);
+        writeBehind.insert(Item.of(1, "nut", 20));
+        writeBehind.insert(Item.of(2, "washer", 30));
+
+        assertFalse(writeBehind.awaitFlushed());
+        assertNotNull(writeBehind.getLastError());
+        assertEquals(2, count("Item"));
+        assertEquals("bolt", queryString("SELECT name FROM Item WHERE id = 1"));
+        //the failure is only reported once.
+        assertTrue(writeBehind.awaitFlushed());
+    }
+
+    @Test
+    public void failedFlushIsRetriedByTheNextOne() throws Exception {
+        db.execSQL("DROP TABLE Item");
+        writeBehind.insert(Item.of(1, "bolt", 10));
+
+        assertFalse(writeBehind.awaitFlushed());
+        assertNotNull(writeBehind.getLastError());
+        assertEquals(1, writeBehind.getPendingCount());
+
+        db.execSQL(Item.CREATE_TABLE);
+        assertTrue(writeBehind.awaitFlushed());
+        assertEquals(0, writeBehind.getPendingCount());
+        assertEquals("bolt", queryString("SELECT name FROM Item WHERE id = 1"));
+    }
+
+    /**
+     * wait for the tasks already submitted to the background thread, without flushing.
+     */
+    void waitForBackgroundThread() throws Exception {
+        writeBehind.executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                return null;
+            }
+        }).get();
+    }
+}